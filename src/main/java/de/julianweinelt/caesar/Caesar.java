@@ -9,6 +9,7 @@ import de.julianweinelt.caesar.backup.BackupManager;
 import de.julianweinelt.caesar.commands.CLICommand;
 import de.julianweinelt.caesar.commands.CLITabCompleter;
 import de.julianweinelt.caesar.commands.system.PluginCommand;
+import de.julianweinelt.caesar.commands.system.StorageCommand;
 import de.julianweinelt.caesar.discord.DiscordBot;
 import de.julianweinelt.caesar.discord.DiscordConfiguration;
 import de.julianweinelt.caesar.discord.ticket.TicketManager;
@@ -213,9 +214,14 @@ public class Caesar {
             if (localStorage.getData().getCaesarVersion() == null
                     || new Semver(localStorage.getData().getCaesarVersion()).isLowerThan(systemVersion)) {
                 log.info("Performing update to Caesar v{}...", systemVersion);
-                dbVersionManager.startDownload(systemVersion);
-                localStorage.getData().setCaesarVersion(systemVersion);
-                localStorage.saveData();
+                if (storageFactory.getUsedStorage().usesBundledSchema()
+                        || dbVersionManager.startDownload(localStorage.getData().getCaesarVersion(), systemVersion)) {
+                    localStorage.getData().setCaesarVersion(systemVersion);
+                    localStorage.saveData();
+                } else {
+                    // Keep the old version, so the remaining scripts are applied on the next start
+                    log.error("Failed to update the database to Caesar v{}. The update will be retried on the next start.", systemVersion);
+                }
             }
         }
         try {
@@ -234,7 +240,8 @@ public class Caesar {
         } catch (Exception e) {
             log.error("Failed to start endpoints: {}", e.getMessage());
         }
-        log.info("Registered all available users ({}).", userManager.getUsers().size());
+        userManager.getWarmUp().thenRun(() ->
+                log.info("Registered all available users ({}).", userManager.getUsers().size()));
         log.info("Starting endpoints complete.");
 
         log.info("Registering system commands...");
@@ -341,6 +348,7 @@ public class Caesar {
                         .executor((label, args) -> Caesar.this.shutdown())
         );
         getRegistry().registerCommand(new CLICommand("plugins").executor(new PluginCommand()));
+        getRegistry().registerCommand(new CLICommand("storage").executor(new StorageCommand()));
     }
 
     public void startFirstStartup() {
@@ -420,13 +428,12 @@ public class Caesar {
         }
         clearScreen();
 
-        String databaseHost = prompt(terminal, "setup.database.host",
-                "localhost", List.of());
-        clearScreen();
-
+        String databaseHost = "localhost";
         String databasePort = "0";
         String defaultDatabasePort = "" + storageType.defaultPort();
         if (!defaultDatabasePort.equals("0")) {
+            databaseHost = prompt(terminal, "setup.database.host", "localhost", List.of());
+            clearScreen();
             databasePort = prompt(terminal, "setup.database.port", defaultDatabasePort, List.of());
             clearScreen();
         }
@@ -490,7 +497,7 @@ public class Caesar {
         if (s == null) {
             throw new IllegalStateException("Storage is null");
         }
-        DatabaseVersionManager.getInstance().downloadVersion(systemVersion);
+        if (!s.usesBundledSchema()) DatabaseVersionManager.getInstance().downloadVersion(systemVersion);
         if (!s.systemDataExist()) s.insertDefaultData();
 
         s.insertDefaultData();
@@ -610,7 +617,11 @@ public class Caesar {
             if (caesarServer != null) caesarServer.stop();
             if (connectionServer != null) connectionServer.stop();
             if (clientLinkServer != null) clientLinkServer.stop();
-            if (storageFactory.getUsedStorage() != null) storageFactory.getUsedStorage().disconnect();
+            if (storageFactory.getAsyncStorage() != null) storageFactory.getAsyncStorage().shutdown();
+            if (storageFactory.getUsedStorage() != null) {
+                storageFactory.getUsedStorage().flushPendingWrites();
+                storageFactory.getUsedStorage().disconnect();
+            }
             if (discordBot != null) discordBot.stop();
             if (voiceServer != null) voiceServer.stop();
         } catch (InterruptedException e) {
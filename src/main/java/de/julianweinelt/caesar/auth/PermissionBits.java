@@ -0,0 +1,51 @@
+package de.julianweinelt.caesar.auth;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns every permission key a small numeric ID, so sets of permissions can be stored as {@link BitSet}s.<br>
+ * IDs are only valid while Caesar is running and must never be saved.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+final class PermissionBits {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private PermissionBits() {}
+
+    /**
+     * Gets the ID of a permission key, assigning a new one if the key has not been seen before.
+     * @param permission The permission key.
+     * @return The ID of the permission.
+     */
+    static int intern(String permission) {
+        return IDS.computeIfAbsent(permission, k -> NEXT_ID.getAndIncrement());
+    }
+
+    /**
+     * Gets the ID of a permission key without assigning a new one.
+     * @param permission The permission key.
+     * @return The ID of the permission or {@code -1} if nobody has been granted the permission yet.
+     */
+    static int lookup(String permission) {
+        Integer id = IDS.get(permission);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Creates a bitset containing the given permissions.
+     * @param permissions The permission keys.
+     * @return A new {@link BitSet} with the bits of all permissions set.
+     */
+    static BitSet of(Collection<String> permissions) {
+        BitSet bits = new BitSet();
+        for (String permission : permissions) if (permission != null) bits.set(intern(permission));
+        return bits;
+    }
+}
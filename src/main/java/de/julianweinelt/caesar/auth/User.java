@@ -1,11 +1,11 @@
 package de.julianweinelt.caesar.auth;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 @Getter
 @Setter
@@ -16,11 +16,22 @@ public class User {
     private boolean active;
     private boolean newlyCreated;
     private boolean applyPasswordPolicy;
+    @Getter(AccessLevel.NONE)
     private final List<String> permissions = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
     private final List<UserRole> roles = new ArrayList<>();
 
     private String discordID;
 
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient PersistedState persisted;
+
+    /**
+     * User grants and role grants merged into one bitset, see {@link #hasPermission(String)}.
+     */
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient volatile EffectivePermissions effective;
+
     public User(UUID uuid) {
         this.uuid = uuid;
     }
@@ -32,11 +43,146 @@ public class User {
         this.discordID = discordID;
     }
 
-    public void addPermission(String permission) {
+    /**
+     * Gets the permissions granted directly to this user.
+     * Use {@link #addPermission(String)} and {@link #removePermission(String)} to change them.
+     * @return An unmodifiable view of the permission keys
+     */
+    public List<String> getPermissions() {
+        return Collections.unmodifiableList(permissions);
+    }
+
+    /**
+     * Gets the roles of this user. Use {@link #addRole(UserRole)} and {@link #removeRole(UserRole)} to change them.
+     * @return An unmodifiable view of the roles
+     */
+    public List<UserRole> getRoles() {
+        return Collections.unmodifiableList(roles);
+    }
+
+    public synchronized void addPermission(String permission) {
         permissions.add(permission);
+        EffectivePermissions e = effective;
+        if (e == null) return;
+        BitSet bits = (BitSet) e.bits().clone();
+        bits.set(PermissionBits.intern(permission));
+        effective = new EffectivePermissions(bits, e.roles(), e.revisions());
+    }
+
+    public synchronized void removePermission(String permission) {
+        // A role might grant the permission as well, so the bitset has to be rebuilt
+        if (permissions.remove(permission)) effective = null;
     }
 
-    public void addRole(UserRole role) {
+    public synchronized void addRole(UserRole role) {
         roles.add(role);
+        EffectivePermissions e = effective;
+        if (e == null) return;
+        // Read the revision first, so a concurrent change of the role leads to a rebuild
+        long revision = role.getRevision();
+        BitSet bits = (BitSet) e.bits().clone();
+        bits.or(role.getPermissionBits());
+        UserRole[] roleSnapshot = Arrays.copyOf(e.roles(), e.roles().length + 1);
+        long[] revisions = Arrays.copyOf(e.revisions(), e.revisions().length + 1);
+        roleSnapshot[roleSnapshot.length - 1] = role;
+        revisions[revisions.length - 1] = revision;
+        effective = new EffectivePermissions(bits, roleSnapshot, revisions);
+    }
+
+    public synchronized void removeRole(UserRole role) {
+        if (roles.remove(role)) effective = null;
+    }
+
+    /**
+     * Replaces all permissions granted directly to this user.
+     * @param permissions The permission keys
+     */
+    public synchronized void replacePermissions(Collection<String> permissions) {
+        this.permissions.clear();
+        this.permissions.addAll(permissions);
+        effective = null;
+    }
+
+    /**
+     * Checks whether this user has a permission, either granted directly or by one of their roles.
+     * @param permission The permission key
+     * @return {@code true} if the user has the permission
+     */
+    public boolean hasPermission(String permission) {
+        // Building the bitset interns the user's permissions, so the lookup has to happen afterward
+        BitSet bits = effectivePermissions();
+        int id = PermissionBits.lookup(permission);
+        return id >= 0 && bits.get(id);
+    }
+
+    private BitSet effectivePermissions() {
+        EffectivePermissions e = effective;
+        if (e != null && e.isCurrent()) return e.bits();
+        synchronized (this) {
+            e = effective;
+            if (e != null && e.isCurrent()) return e.bits();
+            UserRole[] roleSnapshot = roles.toArray(new UserRole[0]);
+            long[] revisions = new long[roleSnapshot.length];
+            // Read the revisions before the bits, so a concurrent change of a role leads to another rebuild
+            for (int i = 0; i < roleSnapshot.length; i++) revisions[i] = roleSnapshot[i].getRevision();
+            BitSet bits = PermissionBits.of(permissions);
+            for (UserRole role : roleSnapshot) bits.or(role.getPermissionBits());
+            effective = new EffectivePermissions(bits, roleSnapshot, revisions);
+            return bits;
+        }
+    }
+
+    /**
+     * Creates a snapshot of all values of this user that are saved in the database.
+     * @return The current state as {@link PersistedState}
+     */
+    public PersistedState snapshot() {
+        Set<UUID> roleIDs = new HashSet<>();
+        for (UserRole role : roles) roleIDs.add(role.getUniqueID());
+        return new PersistedState(username, password, active, newlyCreated, applyPasswordPolicy,
+                Set.copyOf(permissions), Set.copyOf(roleIDs));
+    }
+
+    /**
+     * Gets the state of this user as it was last read from or written to the database.
+     * @return The last persisted state or {@code null} if it is unknown
+     */
+    @Nullable
+    public PersistedState getPersistedState() {
+        return persisted;
+    }
+
+    /**
+     * Marks the current state of this user as saved in the database.
+     */
+    public void markPersisted() {
+        markPersisted(snapshot());
+    }
+
+    /**
+     * Marks the given state of this user as saved in the database.
+     * @param state The state that has been saved as {@link PersistedState}
+     */
+    public void markPersisted(PersistedState state) {
+        this.persisted = state;
+    }
+
+    /**
+     * The merged permissions together with the roles and role revisions they were built from.
+     * Changes of the user's own permissions or roles replace the whole object.
+     */
+    private record EffectivePermissions(BitSet bits, UserRole[] roles, long[] revisions) {
+        boolean isCurrent() {
+            for (int i = 0; i < roles.length; i++) if (roles[i].getRevision() != revisions[i]) return false;
+            return true;
+        }
+    }
+
+    public record PersistedState(String username, int password, boolean active, boolean newlyCreated,
+                                 boolean applyPasswordPolicy, Set<String> permissions, Set<UUID> roles) {
+        public PersistedState withPermissions(Set<String> permissions) {
+            return new PersistedState(username, password, active, newlyCreated, applyPasswordPolicy,
+                    Set.copyOf(permissions), roles);
+        }
     }
 }
\ No newline at end of file
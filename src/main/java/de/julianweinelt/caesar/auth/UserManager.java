@@ -1,37 +1,216 @@
 package de.julianweinelt.caesar.auth;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import de.julianweinelt.caesar.Caesar;
+import de.julianweinelt.caesar.exceptions.StorageException;
 import de.julianweinelt.caesar.plugin.Registry;
 import de.julianweinelt.caesar.plugin.event.Event;
+import de.julianweinelt.caesar.storage.AsyncStorage;
+import de.julianweinelt.caesar.storage.Configuration;
+import de.julianweinelt.caesar.storage.Storage;
 import de.julianweinelt.caesar.storage.StorageFactory;
 import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class UserManager {
     private static final Logger log = LoggerFactory.getLogger(UserManager.class);
+    private static final long WARM_UP_RETRY_DELAY = 30;
 
     public static UserManager getInstance() {
         return Caesar.getInstance().getUserManager();
     }
 
-    @Getter
-    private final List<User> users = new ArrayList<>();
+    public UserManager() {
+        this(Configuration.getInstance(), () -> StorageFactory.getInstance().getUsedStorage());
+    }
 
-    @Getter
-    private final List<UserRole> userRoles = new ArrayList<>();
+    /**
+     * Creates a user manager working on the given storage.
+     * @param config The {@link Configuration} containing the cache settings
+     * @param storage Supplies the {@link Storage} provider users are loaded from and saved to
+     */
+    UserManager(Configuration config, Supplier<Storage> storage) {
+        this.storage = storage;
+        this.unknownUsernames = CacheBuilder.newBuilder()
+                .maximumSize(config.getUnknownUserCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(config.getUnknownUserCacheExpiration()))
+                .build();
+        this.unknownUserIDs = CacheBuilder.newBuilder()
+                .maximumSize(config.getUnknownUserCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(config.getUnknownUserCacheExpiration()))
+                .build();
+    }
 
+    private final Supplier<Storage> storage;
+    private final Map<UUID, User> usersByUUID = new ConcurrentHashMap<>();
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private final Map<Object, CompletableFuture<User>> loading = new ConcurrentHashMap<>();
+    /**
+     * Usernames recently looked up in the database without a result.
+     */
+    private final Cache<String, Boolean> unknownUsernames;
+    /**
+     * User IDs recently looked up in the database without a result.
+     */
+    private final Cache<UUID, Boolean> unknownUserIDs;
+
+    /**
+     * Completes once all users have been loaded into memory by {@link #startWarmUp()}.
+     */
     @Getter
-    private final List<CPermission> permissions = new ArrayList<>();
+    private final CompletableFuture<Void> warmUp = new CompletableFuture<>();
+    private final AtomicBoolean warmUpStarted = new AtomicBoolean(false);
+
+    private volatile Index<UserRole> roles = new Index<>(List.of(), UserRole::getName, UserRole::getUniqueID);
+    private volatile Index<CPermission> permissions = new Index<>(List.of(), CPermission::permissionKey, CPermission::uniqueID);
+
+    /**
+     * Gets all users currently in memory.
+     * @return A snapshot of the users in no particular order
+     */
+    public List<User> getUsers() {
+        return new ArrayList<>(usersByUUID.values());
+    }
+
+    /**
+     * Gets all roles currently in memory.
+     * @return An unmodifiable {@link List} of all roles
+     */
+    public List<UserRole> getUserRoles() {
+        return roles.values();
+    }
+
+    /**
+     * Gets all permissions currently in memory.
+     * @return An unmodifiable {@link List} of all permissions
+     */
+    public List<CPermission> getPermissions() {
+        return permissions.values();
+    }
 
-    public void overrideUsers(List<User> users) {
-        this.users.clear();
-        this.users.addAll(users);
+    /**
+     * Replaces all users in memory with the given list, usually obtained by {@link de.julianweinelt.caesar.storage.Storage#getAllUsers()}.
+     * @param users The {@link List} of {@link User} objects to use
+     */
+    public synchronized void overrideUsers(List<User> users) {
+        usersByUUID.clear();
+        usersByName.clear();
+        for (User user : users) if (user != null) addIfAbsent(user);
+    }
+
+    /**
+     * Starts loading all users into memory in the background. Until this is done, users are loaded on demand
+     * by {@link #getUser(String)} and {@link #getUser(UUID)}. If loading fails, it is tried again after
+     * {@link #WARM_UP_RETRY_DELAY} seconds.
+     */
+    public void startWarmUp() {
+        if (!warmUpStarted.compareAndSet(false, true)) return;
+        long start = System.currentTimeMillis();
+        AsyncStorage.getInstance().getAllUsers().whenComplete((loaded, ex) -> {
+            if (ex != null) {
+                log.error("Failed to load users into memory, retrying in {} seconds: {}", WARM_UP_RETRY_DELAY, ex.getMessage());
+                warmUpStarted.set(false);
+                CompletableFuture.delayedExecutor(WARM_UP_RETRY_DELAY, TimeUnit.SECONDS).execute(this::startWarmUp);
+                return;
+            }
+            mergeUsers(loaded);
+            log.info("Loaded {} users into memory in {} ms.", usersByUUID.size(), System.currentTimeMillis() - start);
+            warmUp.complete(null);
+        });
+    }
+
+    /**
+     * Checks whether all users have been loaded into memory.
+     * @return {@code true} if the warm-up has finished
+     */
+    public boolean isWarmedUp() {
+        return warmUp.isDone();
+    }
+
+    /**
+     * Adds all given users that are not in memory yet. Users already in memory are kept, as they might have been
+     * changed since they were loaded.
+     * @param loaded The {@link List} of {@link User} objects to add
+     */
+    private synchronized void mergeUsers(List<User> loaded) {
+        for (User user : loaded) if (user != null) addIfAbsent(user);
+    }
+
+    private synchronized User addIfAbsent(User user) {
+        User present = usersByUUID.putIfAbsent(user.getUuid(), user);
+        if (present != null) return present;
+        unknownUserIDs.invalidate(user.getUuid());
+        if (user.getUsername() != null) {
+            usersByName.put(user.getUsername(), user);
+            unknownUsernames.invalidate(user.getUsername());
+        }
+        return user;
+    }
+
+    private synchronized void remove(User user) {
+        usersByUUID.remove(user.getUuid(), user);
+        if (user.getUsername() != null) usersByName.remove(user.getUsername(), user);
+    }
+
+    /**
+     * Changes the username of a user and updates the lookup by username accordingly.
+     * The change is not saved to the database.
+     * @param user The {@link User} to rename
+     * @param username The new username as a {@link String}
+     */
+    public synchronized void renameUser(User user, String username) {
+        String old = user.getUsername();
+        if (old != null) usersByName.remove(old, user);
+        user.setUsername(username);
+        unknownUsernames.invalidate(username);
+        if (usersByUUID.get(user.getUuid()) == user) usersByName.put(username, user);
+    }
+
+    /**
+     * Loads a user from the database. Concurrent loads of the same key share a single query.
+     */
+    @Nullable
+    private User load(Object key, Supplier<User> loader) {
+        CompletableFuture<User> future = new CompletableFuture<>();
+        CompletableFuture<User> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+        try {
+            User user = loader.get();
+            if (user != null) user = addIfAbsent(user);
+            future.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
     }
 
     /**
@@ -54,8 +233,9 @@ public class UserManager {
         UUID userID = UUID.randomUUID();
         User user = new User(userID, username,
                 password.hashCode(), discord);
-        users.add(user);
-        StorageFactory.getInstance().getUsedStorage().createUser(user);
+        unknownUsernames.invalidate(username);
+        addIfAbsent(user);
+        storage.get().createUser(user);
         Registry.getInstance().callEvent(new Event("UserCreateEvent")
                 .set("username", username)
                 .set("uuid", userID));
@@ -64,36 +244,55 @@ public class UserManager {
 
     /**
      * Gets a user by their username. If the user is not found in memory, it will be loaded from the database.
+     * Usernames the database does not know are remembered for a while, so repeated lookups don't query it again.
      * @param username The username of the user as a {@link String}
-     * @return The user as a {@link User} object
+     * @return The user as a {@link User} object, or {@code null} if it does not exist or could not be loaded
      */
     @Nullable
     public User getUser(String username) {
-        log.debug("Users found: {}", users.size());
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                log.debug("Found user: {}", username);
-                return user;
-            }
+        User user = usersByName.get(username);
+        // Usernames changed without renameUser leave a stale entry behind
+        if (user != null && username.equals(user.getUsername())) {
+            log.debug("Found user: {}", username);
+            return user;
+        }
+        if (unknownUsernames.getIfPresent(username) != null) {
+            log.debug("User {} is known not to exist.", username);
+            return null;
         }
         log.debug("User {} not found in memory. Loading from database", username);
-        User u = StorageFactory.getInstance().getUsedStorage().getUser(username); //TODO: Change to Optional
-        // null could come from Storage implementation if user does not exist
-        users.add(u);
-        return u;
+        User loaded;
+        try {
+            loaded = load(username, () -> storage.get().getUser(username).orElse(null));
+        } catch (StorageException e) {
+            // Not a confirmed miss, so the username must not be remembered as unknown
+            log.error("Failed to load user {}: {}", username, e.getMessage());
+            return null;
+        }
+        if (loaded == null) unknownUsernames.put(username, Boolean.TRUE);
+        return loaded;
     }
 
     /**
-     * Gets a user by their UUID.
+     * Gets a user by their UUID. If the user is not found in memory, it will be loaded from the database,
+     * as it might have been created by another node after the warm-up.
      * @param uuid The UUID of the user as a {@link UUID}
-     * @return The user as a {@link User} object
+     * @return The user as a {@link User} object, or {@code null} if it does not exist or could not be loaded
      */
     @Nullable
     public User getUser(UUID uuid) { //TODO: Improve with Optional
-        for (User user : users) {
-            if (user.getUuid().equals(uuid)) return user;
+        User user = usersByUUID.get(uuid);
+        if (user != null) return user;
+        if (unknownUserIDs.getIfPresent(uuid) != null) return null;
+        User loaded;
+        try {
+            loaded = load(uuid, () -> storage.get().getUser(uuid).orElse(null));
+        } catch (StorageException e) {
+            log.error("Failed to load user {}: {}", uuid, e.getMessage());
+            return null;
         }
-        return null;
+        if (loaded == null) unknownUserIDs.put(uuid, Boolean.TRUE);
+        return loaded;
     }
 
     /**
@@ -103,8 +302,8 @@ public class UserManager {
     public void deleteUser(String username) {
         User user = getUser(username);
         if (user != null) {
-            StorageFactory.getInstance().getUsedStorage().deleteUser(username);
-            users.remove(user);
+            storage.get().deleteUser(username);
+            remove(user);
         }
     }
 
@@ -115,8 +314,8 @@ public class UserManager {
     public void deleteUser(UUID uuid) {
         User user = getUser(uuid);
         if (user != null) {
-            StorageFactory.getInstance().getUsedStorage().deleteUser(user.getUsername());
-            users.remove(user);
+            storage.get().deleteUser(user.getUsername());
+            remove(user);
         }
     }
 
@@ -124,8 +323,8 @@ public class UserManager {
      * Adds a role to the user manager.
      * @param role The role to add as a {@link UserRole}
      */
-    public void addRole(UserRole role) {
-        userRoles.add(role);
+    public synchronized void addRole(UserRole role) {
+        roles = roles.with(role);
     }
 
     /**
@@ -135,8 +334,7 @@ public class UserManager {
      */
     @Nullable
     public UserRole getRole(String name) { //TODO: Improve with Optional
-        for (UserRole role : userRoles) if (role.getName().equals(name)) return role;
-        return null;
+        return roles.byKey().get(name);
     }
 
     /**
@@ -146,32 +344,35 @@ public class UserManager {
      */
     @Nullable
     public UserRole getRole(UUID uniqueID) { //TODO: Improve with Optional
-        for (UserRole role : userRoles) if (role.getUniqueID().equals(uniqueID)) return role;
-        return null;
+        return roles.byID().get(uniqueID);
     }
 
     /**
      * Loads all roles from the storage into memory.
      */
     public void getAllRoles() {
-        userRoles.clear();
-        userRoles.addAll(StorageFactory.getInstance().getUsedStorage().getAllRoles());
+        List<UserRole> loaded = storage.get().getAllRoles();
+        synchronized (this) {
+            roles = new Index<>(loaded, UserRole::getName, UserRole::getUniqueID);
+        }
     }
 
     /**
      * Loads all permissions from the storage into memory.
      */
     public void getAllPermissions() {
-        permissions.clear();
-        permissions.addAll(StorageFactory.getInstance().getUsedStorage().getAllPermissions());
+        List<CPermission> loaded = storage.get().getAllPermissions();
+        synchronized (this) {
+            permissions = new Index<>(loaded, CPermission::permissionKey, CPermission::uniqueID);
+        }
     }
 
     /**
      * Adds a permission to the user manager.
      * @param permission The permission to add as a {@link CPermission}
      */
-    public void addPermission(CPermission permission) {
-        permissions.add(permission);
+    public synchronized void addPermission(CPermission permission) {
+        permissions = permissions.with(permission);
     }
 
     /**
@@ -181,8 +382,8 @@ public class UserManager {
      */
     @Nullable
     public UUID getPermissionID(String key) { //TODO: Improve with Optional
-        for (CPermission p : permissions) if (p.permissionKey().equals(key)) return p.uniqueID();
-        return null;
+        CPermission p = permissions.byKey().get(key);
+        return p == null ? null : p.uniqueID();
     }
 
     /**
@@ -192,8 +393,7 @@ public class UserManager {
      */
     @Nullable
     public CPermission getPermission(String key) { //TODO: Improve with Optional
-        for (CPermission p : permissions) if (p.permissionKey().equals(key)) return p;
-        return null;
+        return permissions.byKey().get(key);
     }
 
     /**
@@ -203,18 +403,30 @@ public class UserManager {
      */
     @Nullable
     public CPermission getPermission(UUID id) { //TODO: Improve with Optional
-        for (CPermission p : permissions) if (p.uniqueID().equals(id)) return p;
-        return null;
+        return permissions.byID().get(id);
     }
 
     /**
      * Synchronizes user permissions from the storage to the in-memory user objects.
+     * All permissions are loaded first and then applied, so no user is left with partially loaded permissions.
+     * If they could not be loaded, the permissions in memory are kept.
      */
     public void syncUserPermissions() {
-        for (User u : users) {
-            List<String> permissions = StorageFactory.getInstance().getUsedStorage().getUserPermissions(u.getUuid());
-            u.getPermissions().clear();
-            for (String permission : permissions) u.addPermission(permission);
+        Map<UUID, Set<String>> all;
+        try {
+            all = storage.get().getAllUserPermissions();
+        } catch (StorageException e) {
+            log.error("Failed to sync user permissions, keeping the current ones: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            for (User u : usersByUUID.values()) {
+                Set<String> permissions = all.getOrDefault(u.getUuid(), Set.of());
+                User.PersistedState persisted = u.getPersistedState();
+                u.replacePermissions(permissions);
+                // The new permissions are what the database contains, so they must not be written back as changes
+                if (persisted != null) u.markPersisted(persisted.withPermissions(permissions));
+            }
         }
     }
 
@@ -225,7 +437,7 @@ public class UserManager {
      */
     public void setUserActive(String username, boolean active) {
         getUser(username).setActive(active);
-        StorageFactory.getInstance().getUsedStorage().updateUser(getUser(username));
+        storage.get().updateUser(getUser(username));
     }
 
     /**
@@ -235,7 +447,7 @@ public class UserManager {
      */
     public void setUserActive(UUID uuid, boolean active) {
         getUser(uuid).setActive(active);
-        StorageFactory.getInstance().getUsedStorage().updateUser(getUser(uuid));
+        storage.get().updateUser(getUser(uuid));
     }
 
     /**
@@ -245,4 +457,31 @@ public class UserManager {
     public void createSupportUser(int code) {
         //TODO: Implement support user creation
     }
+
+    /**
+     * An immutable list of roles or permissions, indexed by name and unique ID.
+     * Changes create a new index, so lookups never see a partially updated state.
+     */
+    private record Index<T>(List<T> values, Map<String, T> byKey, Map<UUID, T> byID,
+                            Function<T, String> key, Function<T, UUID> id) {
+        Index(List<T> values, Function<T, String> key, Function<T, UUID> id) {
+            this(Collections.unmodifiableList(new ArrayList<>(values)), index(values, key), index(values, id), key, id);
+        }
+
+        Index<T> with(T value) {
+            List<T> copy = new ArrayList<>(values);
+            copy.add(value);
+            return new Index<>(copy, key, id);
+        }
+
+        private static <K, T> Map<K, T> index(List<T> values, Function<T, K> key) {
+            Map<K, T> map = new HashMap<>();
+            // The first entry wins, like the linear search did before
+            for (T value : values) {
+                K k = key.apply(value);
+                if (k != null) map.putIfAbsent(k, value);
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    }
 }
\ No newline at end of file
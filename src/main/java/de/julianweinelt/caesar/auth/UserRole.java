@@ -1,8 +1,11 @@
 package de.julianweinelt.caesar.auth;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,8 +15,17 @@ public class UserRole {
     private final String color;
     private final UUID uniqueID;
 
+    @Getter(AccessLevel.NONE)
     private final List<String> permissions = new ArrayList<>();
 
+    @Getter(AccessLevel.NONE)
+    private transient volatile BitSet permissionBits;
+    /**
+     * Increased whenever a permission is added or removed, so users can detect that their effective permissions are outdated.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private transient volatile long revision = 1;
+
     public UserRole(String name, String color, UUID uniqueID) {
         this.name = name;
         this.color = color;
@@ -34,7 +46,41 @@ public class UserRole {
         this.permissions.addAll(List.of(permissions));
     }
 
-    public void addPermission(String permission) {
+    /**
+     * Gets the permissions of this role. Use {@link #addPermission(String)} and {@link #removePermission(String)}
+     * to change them.
+     * @return An unmodifiable view of the permission keys
+     */
+    public List<String> getPermissions() {
+        return Collections.unmodifiableList(permissions);
+    }
+
+    public synchronized void addPermission(String permission) {
         permissions.add(permission);
+        BitSet bits = (BitSet) getPermissionBits().clone();
+        bits.set(PermissionBits.intern(permission));
+        permissionBits = bits;
+        revision++;
+    }
+
+    public synchronized void removePermission(String permission) {
+        if (!permissions.remove(permission)) return;
+        permissionBits = PermissionBits.of(permissions);
+        revision++;
+    }
+
+    /**
+     * Gets the permissions of this role as bitset. The returned {@link BitSet} must not be modified.
+     * @return The permissions encoded by {@link PermissionBits}
+     */
+    BitSet getPermissionBits() {
+        BitSet bits = permissionBits;
+        if (bits == null) {
+            synchronized (this) {
+                if (permissionBits == null) permissionBits = PermissionBits.of(permissions);
+                bits = permissionBits;
+            }
+        }
+        return bits;
     }
 }
\ No newline at end of file
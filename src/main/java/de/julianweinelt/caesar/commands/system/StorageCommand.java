@@ -0,0 +1,104 @@
+package de.julianweinelt.caesar.commands.system;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.julianweinelt.caesar.commands.CLICommandExecutor;
+import de.julianweinelt.caesar.storage.Configuration;
+import de.julianweinelt.caesar.storage.LocalStorage;
+import de.julianweinelt.caesar.storage.Storage;
+import de.julianweinelt.caesar.storage.StorageFactory;
+import de.julianweinelt.caesar.storage.providers.MySQLStorageProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class StorageCommand implements CLICommandExecutor {
+    private static final Logger log = LoggerFactory.getLogger(StorageCommand.class);
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @Override
+    public void execute(String label, String[] args) {
+        Storage storage = StorageFactory.getInstance().getUsedStorage();
+        if (storage == null) {
+            log.info("No storage has been configured.");
+            return;
+        }
+        if (args.length == 0) {
+            log.info("""
+            No arguments provided.
+            
+            Command usage:
+            storage cache - Displays hit and miss counters of the player lookup cache.
+            storage cache clear - Clears the player lookup cache.
+            storage metrics - Displays call counts and latencies of all storage operations.
+            storage metrics reset - Discards all recorded storage metrics.
+            storage replicas - Displays the replication lag and state of all read replicas.
+            storage export-players <file> - Exports all players, accounts, notes and punishments as NDJSON.
+            storage import-players <file> - Imports players from an NDJSON file created by export-players.
+            storage migrate-uuids confirm - Converts all UUID columns to BINARY(16). Back up your database first!
+            """);
+            return;
+        }
+        if (args[0].equals("cache")) {
+            if (args.length > 1 && args[1].equals("clear")) {
+                storage.getPlayerCache().invalidateAll();
+                log.info("Player lookup cache has been cleared.");
+                return;
+            }
+            log.info("Player lookup cache:\n{}", GSON.toJson(storage.getPlayerCache().getStats()));
+        } else if (args[0].equals("metrics")) {
+            if (args.length > 1 && args[1].equals("reset")) {
+                storage.getMetrics().reset();
+                log.info("Storage metrics have been reset.");
+                return;
+            }
+            log.info("Storage metrics:\n{}", GSON.toJson(storage.getMetrics().toJson()));
+        } else if (args[0].equals("replicas")) {
+            if (storage.getReplicaPool() == null) {
+                log.info("No read replicas are configured.");
+                return;
+            }
+            log.info("Read replicas:\n{}", GSON.toJson(storage.getReplicaPool().getStatus()));
+        } else if (args[0].equals("export-players") || args[0].equals("import-players")) {
+            if (args.length < 2) {
+                log.info("Please provide a file name.");
+                return;
+            }
+            File file = new File(args[1]);
+            try {
+                if (args[0].equals("export-players")) {
+                    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                        storage.exportPlayers(writer);
+                    }
+                    log.info("Exported players to {}.", file.getAbsolutePath());
+                } else {
+                    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                        log.info("Imported players:\n{}", GSON.toJson(storage.importPlayers(reader)));
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to transfer players: {}", e.getMessage());
+            }
+        } else if (args[0].equals("migrate-uuids")) {
+            if (!(storage instanceof MySQLStorageProvider mysql)) {
+                log.info("This storage type does not support binary UUID columns.");
+                return;
+            }
+            if (args.length < 2 || !args[1].equals("confirm")) {
+                log.warn("This converts every UUID column of the database. Make sure to create a backup " +
+                        "and run 'storage migrate-uuids confirm' to continue.");
+                return;
+            }
+            if (mysql.migrateToBinaryUUIDs()) {
+                Configuration.getInstance().setDatabaseBinaryUUIDs(true);
+                LocalStorage.getInstance().saveData();
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import de.julianweinelt.caesar.endpoint.client.CaesarClientLinkServer;
 import de.julianweinelt.caesar.plugin.Registry;
 import de.julianweinelt.caesar.plugin.event.Event;
 import de.julianweinelt.caesar.plugin.event.Subscribe;
+import de.julianweinelt.caesar.storage.AsyncStorage;
 import de.julianweinelt.caesar.storage.LocalStorage;
 import de.julianweinelt.caesar.storage.StorageFactory;
 import de.julianweinelt.caesar.util.wrapping.DiscordEmbedWrapper;
@@ -66,8 +67,13 @@ public class DiscordBot {
     public void validateCode(int code, String dc) {
         UUID user = getCodeUser(code);
         if (user == null) return;
-        CaesarClientLinkServer.getInstance().sendCodeSuccess(code);
-        StorageFactory.getInstance().getUsedStorage().mapUserDiscord(dc, user);
+        // Only report success once the mapping has actually been saved
+        AsyncStorage.getInstance().mapUserDiscord(dc, user)
+                .thenRun(() -> CaesarClientLinkServer.getInstance().sendCodeSuccess(code))
+                .exceptionally(ex -> {
+                    log.error("Failed to link Discord account {} to user {}: {}", dc, user, ex.getMessage());
+                    return null;
+                });
     }
 
     public UUID getCodeUser(int code) {
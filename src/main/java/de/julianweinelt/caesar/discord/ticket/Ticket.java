@@ -1,14 +1,18 @@
 package de.julianweinelt.caesar.discord.ticket;
 
 import de.julianweinelt.caesar.discord.DiscordBot;
-import de.julianweinelt.caesar.storage.StorageFactory;
+import de.julianweinelt.caesar.storage.AsyncStorage;
 import lombok.Getter;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.UUID;
 
 @Getter
 public class Ticket {
+    private static final Logger log = LoggerFactory.getLogger(Ticket.class);
+
     private final UUID uniqueID;
     private final String creator;
     private String handler;
@@ -36,12 +40,18 @@ public class Ticket {
 
     public void updateStatus(TicketStatus ticketStatus) {
         this.status = ticketStatus;
-        StorageFactory.getInstance().getUsedStorage().updateTicketStatus(this, ticketStatus);
+        AsyncStorage.getInstance().updateTicketStatus(this, ticketStatus).exceptionally(ex -> {
+            log.error("Failed to save status of ticket {}: {}", uniqueID, ex.getMessage());
+            return null;
+        });
     }
 
     public void updateHandlingUser(String newHandler) {
         this.handler = newHandler;
-        StorageFactory.getInstance().getUsedStorage().handleTicket(this, newHandler);
+        AsyncStorage.getInstance().handleTicket(this, newHandler).exceptionally(ex -> {
+            log.error("Failed to save handler of ticket {}: {}", uniqueID, ex.getMessage());
+            return null;
+        });
     }
 
     public TextChannel getTextChannel() {
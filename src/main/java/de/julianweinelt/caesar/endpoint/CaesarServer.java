@@ -10,8 +10,10 @@ import de.julianweinelt.caesar.discord.ticket.TicketStatus;
 import de.julianweinelt.caesar.discord.ticket.TicketType;
 import de.julianweinelt.caesar.integration.ServerConnection;
 import de.julianweinelt.caesar.storage.APIKeySaver;
+import de.julianweinelt.caesar.storage.AsyncStorage;
 import de.julianweinelt.caesar.storage.Configuration;
 import de.julianweinelt.caesar.storage.LocalStorage;
+import de.julianweinelt.caesar.storage.PageCursor;
 import de.julianweinelt.caesar.storage.StorageFactory;
 import de.julianweinelt.caesar.util.DatabaseColorParser;
 import de.julianweinelt.caesar.util.JWTUtil;
@@ -25,23 +27,33 @@ import io.javalin.util.JavalinBindException;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("SpellCheckingInspection")
 public class CaesarServer {
     private static final Logger log = LoggerFactory.getLogger(CaesarServer.class);
+    private static final String PRINCIPAL_ATTRIBUTE = "caesar.principal";
     private final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private final JWTUtil jwt;
 
@@ -186,18 +198,22 @@ public class CaesarServer {
                         return;
                     }
                     token = token.replace("Bearer ", "");
-                    if (!jwt.verify(token)) {
+                    DecodedJWT decodedJWT = jwt.decode(token);
+                    if (decodedJWT == null) {
                         ctx.status(HttpStatus.FORBIDDEN); // 403
                         ctx.result(createErrorResponse(ErrorType.TOKEN_INVALID));
                         ctx.skipRemainingHandlers();
                         return;
                     }
-                    DecodedJWT decodedJWT = jwt.decode(token);
                     if (decodedJWT.getExpiresAt().before(Date.from(Instant.now()))) {
                         ctx.status(HttpStatus.FORBIDDEN); // 403
                         ctx.result(createErrorResponse(ErrorType.TOKEN_EXPIRED));
                         ctx.skipRemainingHandlers();
+                        return;
                     }
+                    // Resolve the user once, so handlers don't have to verify the token again
+                    User user = UserManager.getInstance().getUser(decodedJWT.getSubject());
+                    if (user != null) ctx.attribute(PRINCIPAL_ATTRIBUTE, user);
                 })
 
                 // External connections
@@ -303,7 +319,7 @@ public class CaesarServer {
                     boolean enabled = rootObj.get("active").getAsBoolean();
 
                     User user = UserManager.getInstance().getUser(username);
-                    user.setUsername(username);
+                    UserManager.getInstance().renameUser(user, username);
                     user.setDiscordID(discord);
                     user.setActive(enabled);
                     StorageFactory.getInstance().getUsedStorage().updateUser(user);
@@ -629,6 +645,11 @@ public class CaesarServer {
                     ctx.status(HttpStatus.OK);
                 })
                 .get("/config", ctx -> ctx.result(GSON.toJson(LocalStorage.getInstance().getData())))
+                .get("/storage/metrics", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.admin.storage.metrics")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    ctx.result(StorageFactory.getInstance().getUsedStorage().getMetrics().toJson().toString());
+                })
 
                 // Player management
                 .post("/player", ctx -> {
@@ -643,17 +664,27 @@ public class CaesarServer {
                         id = UUID.randomUUID().toString();
                     }
                     if (id == null) id = UUID.randomUUID().toString();
-                    int number;
-                    if (rootObj.has("playerNumber"))
-                        number = rootObj.get("playerNumber").getAsInt();
-                    else number = new SecureRandom().nextInt(1000, 9999);
+                    String playerID = id;
+                    CompletableFuture<Integer> created;
+                    if (rootObj.has("playerNumber")) {
+                        int number = rootObj.get("playerNumber").getAsInt();
+                        created = AsyncStorage.getInstance().createPlayer(UUID.fromString(playerID), number)
+                                .thenApply(v -> number);
+                    } else created = AsyncStorage.getInstance().createPlayer(UUID.fromString(playerID));
 
-                    StorageFactory.getInstance().getUsedStorage().createPlayer(UUID.fromString(id), number);
-                    ctx.status(HttpStatus.CREATED);
-                    ctx.json(Map.of(
-                            "success", true,
-                            "playerID", id
-                    ));
+                    ctx.future(() -> created.thenAccept(number -> {
+                        if (number == -1) {
+                            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR);
+                            ctx.result(createErrorResponse(ErrorType.UNKNOWN));
+                            return;
+                        }
+                        ctx.status(HttpStatus.CREATED);
+                        ctx.json(Map.of(
+                                "success", true,
+                                "playerID", playerID,
+                                "playerNumber", number
+                        ));
+                    }));
                 })
                 .post("/player/mc", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.edit")) return;
@@ -662,36 +693,107 @@ public class CaesarServer {
 
                     UUID playerID = UUID.fromString(rootObj.get("playerID").getAsString());
                     UUID mcID = UUID.fromString(rootObj.get("mcID").getAsString());
-                    StorageFactory.getInstance().getUsedStorage().addMCAccount(playerID, mcID);
-                    ctx.result(createSuccessResponse());
+                    ctx.future(() -> AsyncStorage.getInstance().addMCAccount(playerID, mcID)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
                 .get("/player/id/{id}", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.view")) return;
                     if (serviceUnavailable(ctx)) return;
                     int number = Integer.parseInt(ctx.pathParam("id"));
-                    ctx.result(StorageFactory.getInstance().getUsedStorage().getPlayer(
-                            StorageFactory.getInstance().getUsedStorage().getPlayer(number)
-                    ).toString());
+                    ctx.future(() -> AsyncStorage.getInstance().getPlayer(number)
+                            .thenCompose(AsyncStorage.getInstance()::getPlayer)
+                            .thenAccept(player -> ctx.result(player.toString())));
                 })
                 .get("/player/uuid/{id}", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.view")) return;
                     if (serviceUnavailable(ctx)) return;
-                    ctx.result(StorageFactory.getInstance().getUsedStorage().getPlayer(
-                            UUID.fromString(ctx.pathParam("id"))
-                    ).toString());
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    ctx.future(() -> AsyncStorage.getInstance().getPlayer(playerID)
+                            .thenAccept(player -> ctx.result(player.toString())));
+                })
+                .get("/players/export", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.export")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    ctx.contentType("application/x-ndjson");
+                    ctx.header("Content-Disposition", "attachment; filename=\"players.ndjson\"");
+                    try (Writer writer = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8))) {
+                        StorageFactory.getInstance().getUsedStorage().exportPlayers(writer);
+                    }
+                })
+                .post("/players/import", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.import")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    try (Reader reader = new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8)) {
+                        JsonObject result = StorageFactory.getInstance().getUsedStorage().importPlayers(reader);
+                        result.addProperty("success", true);
+                        ctx.result(result.toString());
+                    } catch (IOException e) {
+                        log.error("Failed to import players: {}", e.getMessage());
+                        ctx.status(HttpStatus.BAD_REQUEST);
+                        ctx.result(createErrorResponse(ErrorType.INVALID_DATA));
+                    }
+                })
+                .get("/player/{id}/profile", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.view")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    ctx.future(() -> AsyncStorage.getInstance().getPlayerProfile(playerID)
+                            .thenAccept(profile -> {
+                                if (profile == null) {
+                                    ctx.status(HttpStatus.NOT_FOUND);
+                                    ctx.result(createErrorResponse(ErrorType.PLAYER_NOT_FOUND));
+                                    return;
+                                }
+                                ctx.result(profile.toString());
+                            }));
+                })
+                .get("/player/{id}/notes", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.view")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    PageCursor cursor = getPageCursor(ctx);
+                    if (ctx.status() == HttpStatus.BAD_REQUEST) return;
+                    int limit = getPageLimit(ctx);
+                    ctx.future(() -> AsyncStorage.getInstance().getPlayerNotes(playerID, cursor, limit)
+                            .thenAccept(page -> ctx.result(page.toString()))
+                            .exceptionally(e -> pageFailed(ctx, e)));
+                })
+                .get("/player/{id}/punishments", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.view")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    PageCursor cursor = getPageCursor(ctx);
+                    if (ctx.status() == HttpStatus.BAD_REQUEST) return;
+                    int limit = getPageLimit(ctx);
+                    ctx.future(() -> AsyncStorage.getInstance().getPunishmentsForPlayer(playerID, cursor, limit)
+                            .thenAccept(page -> ctx.result(page.toString()))
+                            .exceptionally(e -> pageFailed(ctx, e)));
+                })
+                .get("/player/{id}/processes", ctx -> {
+                    if (lackingPermissions(ctx, "caesar.players.view")) return;
+                    if (serviceUnavailable(ctx)) return;
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    PageCursor cursor = getPageCursor(ctx);
+                    if (ctx.status() == HttpStatus.BAD_REQUEST) return;
+                    int limit = getPageLimit(ctx);
+                    ctx.future(() -> AsyncStorage.getInstance().getProcessesForPlayer(playerID, cursor, limit)
+                            .thenAccept(page -> ctx.result(page.toString()))
+                            .exceptionally(e -> pageFailed(ctx, e)));
                 })
                 .get("/player/mc/name/{name}", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.view")) return;
                     if (serviceUnavailable(ctx)) return;
-                    ctx.result(StorageFactory.getInstance().getUsedStorage().getPlayer(
-                            StorageFactory.getInstance().getUsedStorage().getPlayerByAccount(ctx.pathParam("name"))
-                    ).toString());
+                    String name = ctx.pathParam("name");
+                    ctx.future(() -> AsyncStorage.getInstance().getPlayerByAccount(name)
+                            .thenCompose(AsyncStorage.getInstance()::getPlayer)
+                            .thenAccept(player -> ctx.result(player.toString())));
                 })
                 .delete("/player/{id}", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.delete")) return;
                     if (serviceUnavailable(ctx)) return;
-                    StorageFactory.getInstance().getUsedStorage().deletePlayer(UUID.fromString(ctx.pathParam("id")));
-                    ctx.result(createSuccessResponse());
+                    UUID playerID = UUID.fromString(ctx.pathParam("id"));
+                    ctx.future(() -> AsyncStorage.getInstance().deletePlayer(playerID)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
                 .post("/player/note", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.notes.create")) return;
@@ -700,8 +802,8 @@ public class CaesarServer {
                     UUID playerID = UUID.fromString(rootObj.get("playerID").getAsString());
                     UUID userID = getUserByContext(ctx).orElse(null);
                     String note = rootObj.get("note").getAsString();
-                    StorageFactory.getInstance().getUsedStorage().createPlayerNote(playerID, userID, note);
-                    ctx.result(createSuccessResponse());
+                    ctx.future(() -> AsyncStorage.getInstance().createPlayerNote(playerID, userID, note)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
                 .delete("/player/note", ctx -> {
                     if (lackingPermissions(ctx, "caesar.players.notes.delete")) return;
@@ -712,8 +814,8 @@ public class CaesarServer {
                     UUID userID = getUserByContext(ctx).orElse(null);
                     if (userID == null) return; //TODO: Add handler for such cases
                     log.debug(noteID.toString());
-                    StorageFactory.getInstance().getUsedStorage().deletePlayerNote(playerID, userID, noteID);
-                    ctx.result(createSuccessResponse());
+                    ctx.future(() -> AsyncStorage.getInstance().deletePlayerNote(playerID, userID, noteID)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
 
                 .get("/support/waiting-room", ctx ->
@@ -730,13 +832,22 @@ public class CaesarServer {
                     if (userID == null) return; //TODO: Add handler for such cases
                     String comment = "Not provided";
                     if (rootObj.has("comment")) comment = rootObj.get("comment").getAsString();
-                    UUID processID = StorageFactory.getInstance().getUsedStorage().createProcess(
-                            type, status, userID, comment);
-
-                    JsonObject o = new JsonObject();
-                    o.addProperty("success", true);
-                    o.addProperty("processID", processID.toString());
-                    ctx.result(o.toString());
+                    String processComment = comment;
+                    List<UUID> players = new ArrayList<>();
+                    if (rootObj.has("players"))
+                        for (JsonElement e : rootObj.getAsJsonArray("players")) players.add(UUID.fromString(e.getAsString()));
+                    ctx.future(() -> AsyncStorage.getInstance().createProcess(type, status, userID, processComment, players)
+                            .thenAccept(processID -> {
+                                if (processID == null) {
+                                    ctx.status(HttpStatus.INTERNAL_SERVER_ERROR);
+                                    ctx.result(createErrorResponse(ErrorType.UNKNOWN));
+                                    return;
+                                }
+                                JsonObject o = new JsonObject();
+                                o.addProperty("success", true);
+                                o.addProperty("processID", processID.toString());
+                                ctx.result(o.toString());
+                            }));
                 })
                 .patch("/process/status", ctx -> {
                     if (lackingPermissions(ctx, "caesar.process.change-status")) return;
@@ -744,8 +855,8 @@ public class CaesarServer {
                     JsonObject rootObj = JsonParser.parseString(ctx.body()).getAsJsonObject();
                     UUID processID = UUID.fromString(rootObj.get("processID").getAsString());
                     UUID processStatus = UUID.fromString(rootObj.get("processStatus").getAsString());
-                    StorageFactory.getInstance().getUsedStorage().updateProcessStatus(processID, processStatus);
-                    ctx.result(createSuccessResponse());
+                    ctx.future(() -> AsyncStorage.getInstance().updateProcessStatus(processID, processStatus)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
                 .patch("/process/player", ctx -> {
                     if (lackingPermissions(ctx, "caesar.process.assign-player")) return;
@@ -753,8 +864,8 @@ public class CaesarServer {
                     JsonObject rootObj = JsonParser.parseString(ctx.body()).getAsJsonObject();
                     UUID processID = UUID.fromString(rootObj.get("processID").getAsString());
                     UUID playerID = UUID.fromString(rootObj.get("playerID").getAsString());
-                    StorageFactory.getInstance().getUsedStorage().assignPlayerToProcess(processID, playerID);
-                    ctx.result(createSuccessResponse());
+                    ctx.future(() -> AsyncStorage.getInstance().assignPlayerToProcess(processID, playerID)
+                            .thenAccept(v -> ctx.result(createSuccessResponse())));
                 })
 
                 // Dashboard Statistics
@@ -804,17 +915,14 @@ public class CaesarServer {
 
 
     private boolean lackingPermissions(Context ctx, String... requiredPermissions) {
-        String token = ctx.header("Authorization");
-        if (token == null) {
+        User user = getPrincipal(ctx);
+        if (user == null) {
             ctx.skipRemainingHandlers().result(createErrorResponse(ErrorType.NO_PERMISSION)).status(HttpStatus.FORBIDDEN);
             return true;
         }
-        token = token.replace("Bearer ", "");
-        DecodedJWT decoded = JWTUtil.getInstance().decode(token);
-        User user = UserManager.getInstance().getUser(decoded.getSubject());
         if (user.getUsername().equals("admin")) return false;
         for (String requiredPermission : requiredPermissions) {
-            if (!user.getPermissions().contains(requiredPermission)) {
+            if (!user.hasPermission(requiredPermission)) {
                 ctx.skipRemainingHandlers().result(createErrorResponse(ErrorType.NO_PERMISSION)).status(HttpStatus.FORBIDDEN);
                 return true;
             }
@@ -833,24 +941,73 @@ public class CaesarServer {
     }
 
 
+    /**
+     * Reads the {@code cursor} query parameter of a paginated route.
+     * Responds with {@link ErrorType#INVALID_DATA} if the cursor is malformed.
+     * @param ctx The {@link Context} of the request.
+     * @return The decoded {@link PageCursor}, or {@code null} if none was given or it is malformed.
+     */
+    private PageCursor getPageCursor(Context ctx) {
+        String cursor = ctx.queryParam("cursor");
+        try {
+            return PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.result(createErrorResponse(ErrorType.INVALID_DATA));
+            return null;
+        }
+    }
+
+    /**
+     * Responds with {@link ErrorType#UNKNOWN} if a page could not be loaded, so clients don't take it for the last page.
+     * @param ctx The {@link Context} of the request.
+     * @param e The error the page failed with.
+     * @return Always {@code null}.
+     */
+    private Void pageFailed(Context ctx, Throwable e) {
+        log.error("Failed to load page: {}", e.getMessage());
+        ctx.status(HttpStatus.INTERNAL_SERVER_ERROR);
+        ctx.result(createErrorResponse(ErrorType.UNKNOWN));
+        return null;
+    }
+
+    private int getPageLimit(Context ctx) {
+        String limit = ctx.queryParam("limit");
+        if (limit == null) return PageCursor.DEFAULT_LIMIT;
+        try {
+            return PageCursor.clampLimit(Integer.parseInt(limit));
+        } catch (NumberFormatException e) {
+            return PageCursor.DEFAULT_LIMIT;
+        }
+    }
+
     @Deprecated
     private UUID getUserID(Context ctx) {
-        String token = ctx.header("Authorization");
-        if (token == null) return null;
-        token = token.replace("Bearer ", "");
-        DecodedJWT decoded = JWTUtil.getInstance().decode(token);
-        User user = UserManager.getInstance().getUser(decoded.getSubject());
-        return user.getUuid();
+        User user = getPrincipal(ctx);
+        return user == null ? null : user.getUuid();
     }
 
 
     private Optional<UUID> getUserByContext(Context ctx) {
+        return Optional.ofNullable(getPrincipal(ctx)).map(User::getUuid);
+    }
+
+    /**
+     * Gets the user who sent a request. The user is resolved from the token once and kept for the rest of the request.
+     * @param ctx The {@link Context} of the request.
+     * @return The authenticated {@link User} or {@code null} if the request has no valid token.
+     */
+    @Nullable
+    private User getPrincipal(Context ctx) {
+        User user = ctx.attribute(PRINCIPAL_ATTRIBUTE);
+        if (user != null) return user;
         String token = ctx.header("Authorization");
-        if (token == null) return Optional.empty();
-        token = token.replace("Bearer ", "");
-        DecodedJWT decoded = JWTUtil.getInstance().decode(token);
-        User user = UserManager.getInstance().getUser(decoded.getSubject());
-        return Optional.of(user.getUuid());
+        if (token == null) return null;
+        DecodedJWT decoded = jwt.decode(token.replace("Bearer ", ""));
+        if (decoded == null) return null;
+        user = UserManager.getInstance().getUser(decoded.getSubject());
+        if (user != null) ctx.attribute(PRINCIPAL_ATTRIBUTE, user);
+        return user;
     }
 
     public enum ErrorType {
@@ -872,6 +1029,7 @@ public class CaesarServer {
         DISCORD_CHANNEL_NOT_FOUND,
         DISCORD_EMBED_NEVER_SENT,
         DISCORD_EMBED_NOT_FOUND,
+        PLAYER_NOT_FOUND,
         UNKNOWN
     }
 }
\ No newline at end of file
@@ -85,7 +85,7 @@ public class ChatManager {
     public void onChatServerStartup(Event e) {
         this.server = e.get("server").getAs(ChatServer.class);
         log.info("Starting chat save task...");
-        checkJunoDM();
+        UserManager.getInstance().getWarmUp().thenRun(this::checkJunoDM);
         scheduler.scheduleAtFixedRate(dataManager::saveData, 20, 60, TimeUnit.SECONDS);
         log.info("Done! Saving chats every 60 seconds.");
     }
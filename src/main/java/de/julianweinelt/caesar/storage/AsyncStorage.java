@@ -0,0 +1,319 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import de.julianweinelt.caesar.auth.User;
+import de.julianweinelt.caesar.discord.ticket.Ticket;
+import de.julianweinelt.caesar.discord.ticket.TicketStatus;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade for a {@link Storage} provider.<br>
+ * Every operation is executed on a dedicated, bounded database executor and exposed as a {@link CompletableFuture},
+ * so callers like Javalin handlers or JDA listeners are not blocked by slow queries.<br><br>
+ * On Java 21 and newer, virtual threads are used. The amount of concurrently running operations is always bounded
+ * by the maximum size of the connection pool.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class AsyncStorage {
+    private static final Logger log = LoggerFactory.getLogger(AsyncStorage.class);
+
+    @Getter
+    private final Storage storage;
+    @Getter
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Executor boundedExecutor;
+    @Getter
+    private final boolean virtualThreads;
+
+    public static AsyncStorage getInstance() {
+        return StorageFactory.getInstance().getAsyncStorage();
+    }
+
+    /**
+     * Creates a new asynchronous facade for the given storage.
+     * @param storage The {@link Storage} provider to delegate to.
+     * @param maxConcurrency The maximum amount of operations running at the same time.
+     *                       This should match the maximum size of the connection pool.
+     */
+    public AsyncStorage(Storage storage, int maxConcurrency) {
+        this.storage = storage;
+        int concurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(concurrency);
+        ExecutorService virtual = createVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(1000), r -> {
+                Thread t = new Thread(r, "caesar-db-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.boundedExecutor = task -> executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+        log.info("Started database executor ({} threads, max. {} concurrent operations)",
+                virtualThreads ? "virtual" : "platform", concurrency);
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task, or returns {@code null} if the runtime does not support
+     * virtual threads.<br>
+     * Caesar is compiled for Java 17, where the method does not exist, so it is looked up reflectively.
+     * On Java 21 and newer, it is found and used.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Executes the given operation on the database executor.
+     * @param operation The operation to execute, receiving the {@link Storage} provider.
+     * @return A {@link CompletableFuture} completing with the result of the operation. Completes exceptionally with
+     * a {@link RejectedExecutionException} if the queue of the executor is full or it has been shut down.
+     * @param <T> The result type of the operation.
+     */
+    public <T> CompletableFuture<T> supply(Function<Storage, T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(() -> operation.apply(storage), boundedExecutor);
+        } catch (RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> rejected(RejectedExecutionException e) {
+        log.warn("Rejected database operation: {}", e.getMessage());
+        return CompletableFuture.failedFuture(e);
+    }
+
+    /**
+     * Executes the given operation without a result on the database executor.
+     * @param operation The operation to execute, receiving the {@link Storage} provider.
+     * @return A {@link CompletableFuture} completing once the operation has finished.
+     */
+    public CompletableFuture<Void> run(Consumer<Storage> operation) {
+        return supply(s -> {
+            operation.accept(s);
+            return null;
+        });
+    }
+
+    /**
+     * Executes several operations as one unit of work on the database executor.
+     * @see Storage#inTransaction(Function)
+     */
+    public <T> CompletableFuture<T> inTransaction(Function<Storage, T> work) {
+        return supply(s -> s.inTransaction(work));
+    }
+
+    /**
+     * Stops accepting new operations and waits for running ones to complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Database executor did not terminate in time. Forcing shutdown...");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Users
+
+    public CompletableFuture<Optional<User>> getUser(String username) {
+        return supply(s -> s.getUser(username));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return supply(Storage::getAllUsers);
+    }
+
+    public CompletableFuture<Void> updateUser(User user) {
+        return run(s -> s.updateUser(user));
+    }
+
+    public CompletableFuture<List<String>> getUserPermissions(UUID uuid) {
+        return supply(s -> s.getUserPermissions(uuid));
+    }
+
+    public CompletableFuture<Map<UUID, Set<String>>> getAllUserPermissions() {
+        return supply(Storage::getAllUserPermissions);
+    }
+
+    // Players
+
+    public CompletableFuture<UUID> createPlayer() {
+        return supply(Storage::createPlayer);
+    }
+
+    public CompletableFuture<Integer> createPlayer(UUID uuid) {
+        return supply(s -> s.createPlayer(uuid));
+    }
+
+    public CompletableFuture<Void> createPlayer(UUID uuid, int number) {
+        return run(s -> s.createPlayer(uuid, number));
+    }
+
+    public CompletableFuture<Void> deletePlayer(UUID player) {
+        return run(s -> s.deletePlayer(player));
+    }
+
+    public CompletableFuture<JsonObject> getPlayer(UUID player) {
+        return supply(s -> s.getPlayer(player));
+    }
+
+    /**
+     * Gets the full profile of a player on the bounded executor, loading its sections concurrently.
+     * @see Storage#getPlayerProfile(UUID, Executor)
+     */
+    public CompletableFuture<JsonObject> getPlayerProfile(UUID player) {
+        try {
+            return storage.getPlayerProfile(player, boundedExecutor);
+        } catch (RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    public CompletableFuture<UUID> getPlayer(int number) {
+        return supply(s -> s.getPlayer(number));
+    }
+
+    public CompletableFuture<UUID> getPlayerByAccount(String mcName) {
+        return supply(s -> s.getPlayerByAccount(mcName));
+    }
+
+    public CompletableFuture<Void> addMCAccount(UUID player, UUID mc) {
+        return run(s -> s.addMCAccount(player, mc));
+    }
+
+    public CompletableFuture<Void> removeMCAccount(UUID player, UUID mc) {
+        return run(s -> s.removeMCAccount(player, mc));
+    }
+
+    public CompletableFuture<JsonArray> getMCAccounts(UUID player) {
+        return supply(s -> s.getMCAccounts(player));
+    }
+
+    public CompletableFuture<JsonArray> getPlayerNotes(UUID player) {
+        return supply(s -> s.getPlayerNotes(player));
+    }
+
+    public CompletableFuture<JsonObject> getPlayerNotes(UUID player, PageCursor cursor, int limit) {
+        return supply(s -> s.getPlayerNotes(player, cursor, limit));
+    }
+
+    public CompletableFuture<Void> createPlayerNote(UUID player, UUID user, String note) {
+        return run(s -> s.createPlayerNote(player, user, note));
+    }
+
+    public CompletableFuture<Void> deletePlayerNote(UUID player, UUID user, UUID note) {
+        return run(s -> s.deletePlayerNote(player, user, note));
+    }
+
+    public CompletableFuture<JsonArray> getPunishmentsForPlayer(UUID player) {
+        return supply(s -> s.getPunishmentsForPlayer(player));
+    }
+
+    public CompletableFuture<JsonObject> getPunishmentsForPlayer(UUID player, PageCursor cursor, int limit) {
+        return supply(s -> s.getPunishmentsForPlayer(player, cursor, limit));
+    }
+
+    // Processes
+
+    public CompletableFuture<JsonArray> getProcessesForPlayer(UUID player) {
+        return supply(s -> s.getProcessesForPlayer(player));
+    }
+
+    public CompletableFuture<JsonObject> getProcessesForPlayer(UUID player, PageCursor cursor, int limit) {
+        return supply(s -> s.getProcessesForPlayer(player, cursor, limit));
+    }
+
+    public CompletableFuture<UUID> createProcess(UUID type, UUID initialStatus, UUID creator, String comment) {
+        return supply(s -> s.createProcess(type, initialStatus, creator, comment));
+    }
+
+    /**
+     * Creates a new process and assigns the given players to it in a single transaction.
+     * @return A {@link CompletableFuture} completing with the ID of the process or {@code null} if it failed.
+     */
+    public CompletableFuture<UUID> createProcess(UUID type, UUID initialStatus, UUID creator, String comment,
+                                                 List<UUID> players) {
+        return inTransaction(tx -> {
+            UUID process = tx.createProcess(type, initialStatus, creator, comment);
+            for (UUID player : players) tx.assignPlayerToProcess(process, player);
+            return process;
+        });
+    }
+
+    public CompletableFuture<Void> assignPlayerToProcess(UUID process, UUID player) {
+        return run(s -> s.assignPlayerToProcess(process, player));
+    }
+
+    public CompletableFuture<Void> updateProcessStatus(UUID process, UUID status) {
+        return run(s -> s.updateProcessStatus(process, status));
+    }
+
+    public CompletableFuture<JsonArray> getProcessTypes() {
+        return supply(Storage::getProcessTypes);
+    }
+
+    public CompletableFuture<JsonArray> getProcessStatuses() {
+        return supply(Storage::getProcessStatuses);
+    }
+
+    // Tickets
+
+    public CompletableFuture<Void> updateTicketStatus(Ticket ticket, TicketStatus status) {
+        return run(s -> s.updateTicketStatus(ticket, status));
+    }
+
+    public CompletableFuture<Void> handleTicket(Ticket ticket, String handler) {
+        return run(s -> s.handleTicket(ticket, handler));
+    }
+
+    // Discord
+
+    public CompletableFuture<String> getDiscordID(UUID user) {
+        return supply(s -> s.getDiscordID(user));
+    }
+
+    public CompletableFuture<UUID> getUserIDFromDiscordID(String discordID) {
+        return supply(s -> s.getUserIDFromDiscordID(discordID));
+    }
+
+    public CompletableFuture<Void> mapUserDiscord(String discord, UUID user) {
+        return run(s -> s.mapUserDiscord(discord, user));
+    }
+}
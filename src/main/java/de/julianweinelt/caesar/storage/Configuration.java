@@ -49,6 +49,14 @@ public class Configuration {
     private String databaseUser = "caesar";
     private String databasePassword = "secret";
     private int databasePort = 3306;
+    private ConnectionPoolSettings databasePool = new ConnectionPoolSettings();
+    private WriteBehindSettings databaseWriteBehind = new WriteBehindSettings();
+    private ReplicaSettings databaseReplicas = new ReplicaSettings();
+    private boolean databaseBinaryUUIDs = false; // Set by 'storage migrate-uuids'
+    private int playerCacheSize = 10000;
+    private int playerCacheExpiration = 10; // Minutes
+    private int unknownUserCacheSize = 10000;
+    private int unknownUserCacheExpiration = 60; // Seconds
 
     private String webServerHost = "127.0.0.1";
     private int webServerPort = 48000;
@@ -99,6 +107,7 @@ public class Configuration {
     private String caesarAPIEndpoint = "https://api.caesarnet.cloud/";
     //private String caesarAPIEndpoint = "http://localhost:48009/";
     private boolean apiEndpointKeyRequired = false;
+    private boolean databaseScriptsOffline = false;
 
     @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
     private final String _INFO3 = "Defined Minecraft plugin endpoints are here.";
@@ -146,6 +155,14 @@ public class Configuration {
             case "databaseUser" -> databaseUser = (String) value;
             case "databasePassword" -> databasePassword = (String) value;
             case "databasePort" -> databasePort = (int) value;
+            case "databasePool" -> databasePool = (ConnectionPoolSettings) value;
+            case "databaseWriteBehind" -> databaseWriteBehind = (WriteBehindSettings) value;
+            case "databaseReplicas" -> databaseReplicas = (ReplicaSettings) value;
+            case "databaseBinaryUUIDs" -> databaseBinaryUUIDs = (boolean) value;
+            case "playerCacheSize" -> playerCacheSize = (int) value;
+            case "playerCacheExpiration" -> playerCacheExpiration = (int) value;
+            case "unknownUserCacheSize" -> unknownUserCacheSize = (int) value;
+            case "unknownUserCacheExpiration" -> unknownUserCacheExpiration = (int) value;
             case "webServerHost" -> webServerHost = (String) value;
             case "webServerPort" -> webServerPort = (int) value;
             case "chatServerPort" -> chatServerPort = (int) value;
@@ -170,6 +187,7 @@ public class Configuration {
             case "caesarAPIEndpoint" -> caesarAPIEndpoint = (String) value;
             case "caesarVersion" -> caesarVersion = (String) value;
             case "apiEndpointKeyRequired" -> apiEndpointKeyRequired = (boolean) value;
+            case "databaseScriptsOffline" -> databaseScriptsOffline = (boolean) value;
             case "afterBackupAction" -> afterBackupAction = AfterBackupAction.valueOf((String) value);
             case "updateChannel" -> updateChannel = UpdateChannel.valueOf((String) value);
             case "intervalType" -> intervalType = ChronoUnit.valueOf((String) value);
@@ -202,6 +220,14 @@ public class Configuration {
             case "databaseUser" -> databaseUser;
             case "databasePassword" -> databasePassword;
             case "databasePort" -> databasePort;
+            case "databasePool" -> databasePool;
+            case "databaseWriteBehind" -> databaseWriteBehind;
+            case "databaseReplicas" -> databaseReplicas;
+            case "databaseBinaryUUIDs" -> databaseBinaryUUIDs;
+            case "playerCacheSize" -> playerCacheSize;
+            case "playerCacheExpiration" -> playerCacheExpiration;
+            case "unknownUserCacheSize" -> unknownUserCacheSize;
+            case "unknownUserCacheExpiration" -> unknownUserCacheExpiration;
             case "webServerHost" -> webServerHost;
             case "webServerPort" -> webServerPort;
             case "chatServerPort" -> chatServerPort;
@@ -226,6 +252,7 @@ public class Configuration {
             case "caesarAPIEndpoint" -> caesarAPIEndpoint;
             case "caesarVersion" -> caesarVersion;
             case "apiEndpointKeyRequired" -> apiEndpointKeyRequired;
+            case "databaseScriptsOffline" -> databaseScriptsOffline;
             case "afterBackupAction" -> afterBackupAction;
             case "updateChannel" -> updateChannel;
             case "intervalType" -> intervalType;
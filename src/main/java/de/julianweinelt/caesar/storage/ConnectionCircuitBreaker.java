@@ -0,0 +1,65 @@
+package de.julianweinelt.caesar.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for acquiring database connections.<br>
+ * After {@link ConnectionPoolSettings#getFailureThreshold()} failures in a row, the breaker opens and connection
+ * requests fail immediately instead of waiting for the connection timeout. Once the backoff has elapsed, requests
+ * are let through again; another failure reopens the breaker with a doubled backoff, a success closes it.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class ConnectionCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionCircuitBreaker.class);
+
+    private final int failureThreshold;
+    private final long initialBackoff;
+    private final long maxBackoff;
+
+    private volatile int failures = 0;
+    private volatile long retryAt = 0;
+    private long backoff;
+
+    public ConnectionCircuitBreaker(ConnectionPoolSettings settings) {
+        this.failureThreshold = Math.max(1, settings.getFailureThreshold());
+        this.initialBackoff = settings.getReconnectBackoff();
+        this.maxBackoff = Math.max(initialBackoff, settings.getMaxReconnectBackoff());
+        this.backoff = initialBackoff;
+    }
+
+    /**
+     * Checks whether connection requests are currently rejected.
+     * @return {@code true} if the breaker is open and the backoff has not elapsed yet.
+     */
+    public boolean isOpen() {
+        return failures >= failureThreshold && System.currentTimeMillis() < retryAt;
+    }
+
+    /**
+     * Gets the time until the next attempt is allowed.
+     * @return The remaining backoff in milliseconds, {@code 0} if attempts are allowed.
+     */
+    public long getRemainingBackoff() {
+        return isOpen() ? Math.max(0, retryAt - System.currentTimeMillis()) : 0;
+    }
+
+    public void recordSuccess() {
+        if (failures == 0) return;
+        synchronized (this) {
+            if (failures >= failureThreshold) log.info("Database connection has been restored.");
+            failures = 0;
+            backoff = initialBackoff;
+        }
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        if (failures < failureThreshold) return;
+        retryAt = System.currentTimeMillis() + backoff;
+        log.warn("Database is not reachable. Rejecting requests for {} ms.", backoff);
+        backoff = Math.min(backoff * 2, maxBackoff);
+    }
+}
@@ -0,0 +1,39 @@
+package de.julianweinelt.caesar.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Settings for the JDBC connection pool owned by a {@link Storage} provider.<br>
+ * All time values are defined in milliseconds.
+ */
+@Getter
+@Setter
+public class ConnectionPoolSettings {
+    private int minimumIdle = 2;
+    private int maximumPoolSize = 10;
+    private long idleTimeout = Duration.ofMinutes(10).toMillis();
+    private long connectionTimeout = Duration.ofSeconds(10).toMillis();
+    private long maxLifetime = Duration.ofMinutes(30).toMillis();
+    /**
+     * Query used to validate borrowed connections. Leave empty to use the driver's {@code Connection#isValid()}.
+     */
+    private String validationQuery = "";
+    /**
+     * Time a connection may be out of the pool before a possible leak is logged. {@code 0} disables leak detection.
+     */
+    private long leakDetectionThreshold = Duration.ofSeconds(30).toMillis();
+    /**
+     * Failed connection attempts in a row after which requests fail immediately until the backoff has elapsed.
+     */
+    private int failureThreshold = 3;
+    /**
+     * Initial wait time before connecting again. It is doubled after every further failure.
+     */
+    private long reconnectBackoff = Duration.ofSeconds(1).toMillis();
+    private long maxReconnectBackoff = Duration.ofMinutes(1).toMillis();
+
+    public ConnectionPoolSettings() {}
+}
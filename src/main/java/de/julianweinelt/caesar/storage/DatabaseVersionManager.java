@@ -2,10 +2,13 @@ package de.julianweinelt.caesar.storage;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.vdurmont.semver4j.Semver;
+import com.vdurmont.semver4j.SemverException;
 import de.julianweinelt.caesar.Caesar;
 import de.julianweinelt.caesar.util.LanguageManager;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,8 +17,19 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages the downloading and execution of database version scripts.
@@ -30,36 +44,79 @@ public class DatabaseVersionManager {
 
     private final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private final File folder = new File("update");
+    private final File manifestFile = new File(folder, "checksums.json");
+    private Map<String, String> manifest;
+
     public static DatabaseVersionManager getInstance() {
         return Caesar.getInstance().getDbVersionManager();
     }
 
     /**
-     * Starts the download and execution of database scripts up to the specified version.
+     * Starts the download and execution of the database scripts between the installed and the specified version.<br>
+     * Scripts are downloaded concurrently. Scripts already present in the {@code update} folder are only downloaded
+     * again if their checksum does not match. In offline mode, only the scripts in the {@code update} folder are used.
+     * Afterward, {@link Storage#upgradeSchema()} adds the parts of the schema the storage maintains itself.
+     * @param installed The version the database is currently on, or {@code null} if unknown. Only scripts newer
+     *                  than this version are executed.
      * @param version The target version to update the database to.
+     * @return True if all scripts have been applied, false if one of them failed.
      */
-    public void startDownload(String version) {
+    public boolean startDownload(@Nullable String installed, String version) {
         Semver v = new Semver(version);
-        List<String> all = getAllVersions();
-        List<String> toExecute = new ArrayList<>();
-        for (String s : all) {
-            if (new Semver(s).isLowerThanOrEqualTo(v)) {
-                downloadVersion(s);
-                toExecute.add(s);
-            }
+        Semver from = installed == null ? null : new Semver(installed);
+        boolean offline = Configuration.getInstance().isDatabaseScriptsOffline();
+        List<String> all = offline ? List.of() : getAllVersions();
+        if (all.isEmpty()) {
+            if (!offline) log.warn("Could not get database versions from remote server. Using local scripts only.");
+            offline = true;
+            all = getLocalVersions();
+        }
+        List<String> toExecute = all.stream()
+                .filter(s -> new Semver(s).isLowerThanOrEqualTo(v))
+                .filter(s -> from == null || new Semver(s).isGreaterThan(from))
+                .sorted(Comparator.comparing(Semver::new))
+                .toList();
+
+        if (!offline) {
+            Map<String, String> checksums = getPublishedChecksums();
+            CompletableFuture.allOf(toExecute.stream()
+                    .map(s -> downloadVersionAsync(s, checksums.get(s)))
+                    .toArray(CompletableFuture[]::new)).join();
+            log.info("Download of database scripts completed.");
         }
 
-        log.info("Download of database scripts completed.");
         log.info("Continuing with applying changes to database...");
         for (String s : toExecute) {
             log.info("Applying changes for version {}...", s);
-            if (StorageFactory.getInstance().getUsedStorage().executeScript(s)) {
+            String script = loadSQLScript(s);
+            if (script.isBlank()) {
+                log.info("No changes for version {}.", s);
+                continue;
+            }
+            String known = getManifest().get(s);
+            if (known != null && !known.equals(checksum(script))) {
+                log.error("Database script for version {} has been modified since it was downloaded. Aborting.", s);
+                return false;
+            }
+            if (StorageFactory.getInstance().getUsedStorage().executeScript(script)) {
                 log.info("Changes applied.");
             } else {
                 log.warn("Failed to apply changes. Aborting.");
-                break;
+                return false;
             }
         }
+        try {
+            StorageFactory.getInstance().getUsedStorage().upgradeSchema();
+        } catch (SQLException e) {
+            log.error("Failed to upgrade the database schema: {}", e.getMessage());
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -68,11 +125,11 @@ public class DatabaseVersionManager {
      * @return The SQL script as a String.
      */
     private String loadSQLScript(String version) {
-        try (BufferedReader br = new BufferedReader(new FileReader(new File(new File("update"), version + ".sql")))) {
-            String line;
-            StringBuilder sb = new StringBuilder();
-            while ((line = br.readLine()) != null) sb.append(line);
-            return sb.toString();
+        File file = new File(new File("update"), version + ".sql");
+        if (!file.exists()) return "";
+        try {
+            // Line breaks must be kept, otherwise "--" comments would swallow the following statements
+            return Files.readString(file.toPath(), StandardCharsets.UTF_8);
         } catch (IOException e) {
             log.error(e.getMessage());
         }
@@ -81,30 +138,157 @@ public class DatabaseVersionManager {
 
     /**
      * Downloads the SQL script for the specified version from the remote server.
+     * Does nothing if the script is already present in the {@code update} folder or offline mode is enabled.
      * @param version The version of the SQL script to download.
      */
     public void downloadVersion(String version) {
-        File folder = new File("update");
-        try {
-            log.info("Downloading database script for {}...", version);
+        if (Configuration.getInstance().isDatabaseScriptsOffline()) return;
+        downloadVersionAsync(version, getPublishedChecksums().get(version)).join();
+    }
 
-            HttpClient client = HttpClient.newHttpClient();
+    /**
+     * Downloads the SQL script for the specified version from the remote server, unless a matching copy is already
+     * present in the {@code update} folder.<br>
+     * A local copy is compared with the published checksum or, if none has been published, with the checksum saved
+     * when it was downloaded. Local copies without any known checksum, like scripts placed by hand, are used as they are.
+     * @param version The version of the SQL script to download.
+     * @param checksum The published SHA-256 checksum of the script or {@code null} if none has been published.
+     * @return A {@link CompletableFuture} completing once the script has been saved. Never completes exceptionally.
+     */
+    private CompletableFuture<Void> downloadVersionAsync(String version, @Nullable String checksum) {
+        File file = new File(folder, version + ".sql");
+        if (file.exists()) {
+            String expected = checksum != null ? checksum : getManifest().get(version);
+            if (expected == null) {
+                log.warn("Using local database script for {} without verification, no checksum is known.", version);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (expected.equalsIgnoreCase(checksum(loadSQLScript(version)))) {
+                log.debug("Database script for {} is already present.", version);
+                return CompletableFuture.completedFuture(null);
+            }
+            log.warn("Local database script for {} does not match its checksum. Downloading it again...", version);
+        }
+
+        log.info("Downloading database script for {}...", version);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(Configuration.getInstance().getCaesarAPIEndpoint() + "public/database/" + version))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenAccept(response -> {
+                    if (response.statusCode() == 200) {
+                        saveScript(version, response.body(), checksum);
+                    } else if (response.statusCode() != 404) {
+                        log.error("Failed to download sql script for version {}. Status code: {}", version, response.statusCode());
+                    }
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to download sql script for version {}: {}", version, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Saves a downloaded script. Only scripts verified against a published checksum are added to the manifest,
+     * so an unverified download is never trusted later on.
+     */
+    private void saveScript(String version, String script, @Nullable String checksum) {
+        String actual = checksum(script);
+        if (checksum == null) {
+            log.warn("No checksum published for database script {}. Verification has been skipped.", version);
+        } else if (!checksum.equalsIgnoreCase(actual)) {
+            log.error("Checksum mismatch for database script {}. Expected {}, got {}.", version, checksum, actual);
+            return;
+        }
+        if (folder.mkdirs()) log.debug("Created update folder.");
+        try {
+            Files.writeString(new File(folder, version + ".sql").toPath(), script, StandardCharsets.UTF_8);
+            // An older verified checksum no longer applies to the replaced file
+            putManifest(version, checksum != null ? actual : null);
+        } catch (IOException e) {
+            log.error("Failed to save sql script for version {}: {}", version, e.getMessage());
+        }
+    }
 
+    /**
+     * Retrieves the SHA-256 checksums of all published database scripts from the remote server.
+     * @return A map of version strings to checksums. Empty if no checksums are published.
+     */
+    private Map<String, String> getPublishedChecksums() {
+        try {
             HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(Configuration.getInstance().getCaesarAPIEndpoint() + "public/database" + version))
+                    .uri(URI.create(Configuration.getInstance().getCaesarAPIEndpoint() + "public/database/checksums"))
                     .header("Accept", "application/json")
+                    .timeout(Duration.ofSeconds(30))
                     .build();
             HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
             if (response.statusCode() == 200) {
-                try (FileWriter w = new FileWriter(new File(folder, version + ".sql"))) {
-                    w.write(response.body());
-                }
-            } else if (response.statusCode() != 404) {
-                log.error("Failed to download sql script for version {}. Status code: {}", version, response.statusCode());
+                Map<String, String> checksums = GSON.fromJson(response.body(), new TypeToken<Map<String, String>>(){}.getType());
+                if (checksums != null) return checksums;
+            }
+            log.warn("No checksums published for database scripts. Status code: {}", response.statusCode());
+        } catch (InterruptedException | IOException | JsonParseException e) {
+            log.warn("Failed to get checksums of database scripts: {}", e.getMessage());
+        }
+        return Map.of();
+    }
+
+    /**
+     * Creates the checksum of a script.
+     * @param script The SQL script.
+     * @return The SHA-256 checksum as hex string.
+     */
+    private static String checksum(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Lists the versions of all database scripts present in the {@code update} folder.
+     * @return A list of version strings.
+     */
+    private List<String> getLocalVersions() {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".sql"));
+        if (files == null) return List.of();
+        List<String> versions = new ArrayList<>();
+        for (File f : files) {
+            String version = f.getName().substring(0, f.getName().length() - 4);
+            try {
+                new Semver(version);
+                versions.add(version);
+            } catch (SemverException e) {
+                log.debug("Ignoring {} in update folder.", f.getName());
             }
-        } catch (InterruptedException | IOException e) {
-            log.error("Failed to download language data: {}", e.getMessage());
+        }
+        return versions;
+    }
+
+    private synchronized Map<String, String> getManifest() {
+        if (manifest != null) return manifest;
+        manifest = new HashMap<>();
+        if (!manifestFile.exists()) return manifest;
+        try (Reader r = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            Map<String, String> loaded = GSON.fromJson(r, new TypeToken<Map<String, String>>(){}.getType());
+            if (loaded != null) manifest.putAll(loaded);
+        } catch (Exception e) {
+            log.warn("Failed to load checksums of database scripts: {}", e.getMessage());
+        }
+        return manifest;
+    }
+
+    private synchronized void putManifest(String version, @Nullable String checksum) {
+        if (checksum == null && getManifest().remove(version) == null) return;
+        if (checksum != null) getManifest().put(version, checksum);
+        try (Writer w = Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(manifest, w);
+        } catch (IOException e) {
+            log.warn("Failed to save checksums of database scripts: {}", e.getMessage());
         }
     }
 
@@ -114,11 +298,10 @@ public class DatabaseVersionManager {
      */
     public List<String> getAllVersions() {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(Configuration.getInstance().getCaesarAPIEndpoint() + "public/database/allversions"))
                     .header("Accept", "application/json")
+                    .timeout(Duration.ofSeconds(30))
                     .build();
 
             HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
@@ -0,0 +1,71 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Cursor for keyset pagination over records ordered by their creation date and ID, newest first.<br>
+ * The cursor points to the last record of a page; the next page starts right after it.
+ * @param creationDate The creation date of the last record returned.
+ * @param id The ID of the last record returned, used as tie-breaker for equal creation dates.
+ */
+public record PageCursor(long creationDate, UUID id) {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    /**
+     * Encodes this cursor to an opaque, URL-safe {@link String}.
+     * @return The encoded cursor.
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((creationDate + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously created by {@link #encode()}.
+     * @param cursor The encoded cursor, may be {@code null} or empty for the first page.
+     * @return The decoded {@link PageCursor}, or {@code null} if no cursor was given.
+     * @throws IllegalArgumentException if the cursor is malformed or its ID is not a {@link UUID}.
+     */
+    public static @Nullable PageCursor decode(@Nullable String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(':');
+        if (separator < 1) throw new IllegalArgumentException("Malformed page cursor");
+        try {
+            return new PageCursor(Long.parseLong(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page cursor", e);
+        }
+    }
+
+    /**
+     * Clamps the requested page size to the range {@code 1..MAX_LIMIT}.
+     * @param limit The requested page size.
+     * @return The page size to use.
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Creates the JSON representation of a page.
+     * @param items The items of the page.
+     * @param next The cursor of the next page, or {@code null} if this is the last page.
+     * @return A {@link JsonObject} containing the items and the {@code next} cursor.
+     */
+    public static JsonObject page(JsonArray items, @Nullable PageCursor next) {
+        JsonObject page = new JsonObject();
+        page.add("items", items);
+        if (next == null) page.add("next", null);
+        else page.addProperty("next", next.encode());
+        return page;
+    }
+}
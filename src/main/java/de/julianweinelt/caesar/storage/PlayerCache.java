@@ -0,0 +1,182 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for player lookups that rarely change: Minecraft account name, player number and
+ * Minecraft accounts of a player.<br>
+ * Entries are evicted by size and after a fixed time since they were written.
+ * Storage providers have to invalidate affected entries whenever player or account data is changed.<br>
+ * Values loaded while an invalidation happens are not cached, as they might have been read before the change.<br><br>
+ * Missing players are not cached, so newly created players are found immediately.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class PlayerCache {
+    private final Cache<String, UUID> byAccountName;
+    private final Cache<Integer, UUID> byNumber;
+    private final Cache<UUID, Integer> numbers;
+    private final Cache<UUID, JsonArray> accounts;
+
+    // Keys of the lookups by account name and number per player, so a player's entries can be invalidated directly
+    private final Map<UUID, Set<String>> accountNamesByPlayer = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Integer>> numbersByPlayer = new ConcurrentHashMap<>();
+
+    /**
+     * Increased on every invalidation. Loaded values are only cached if no invalidation happened while loading.
+     */
+    private volatile long generation = 0;
+
+    /**
+     * Creates a new player cache.
+     * @param maximumSize The maximum amount of entries per lookup type.
+     * @param expireAfterWrite The time after which an entry is reloaded from the database.
+     */
+    public PlayerCache(long maximumSize, Duration expireAfterWrite) {
+        this.byAccountName = build(maximumSize, expireAfterWrite,
+                n -> unindex(accountNamesByPlayer, n.getValue(), n.getKey()));
+        this.byNumber = build(maximumSize, expireAfterWrite,
+                n -> unindex(numbersByPlayer, n.getValue(), n.getKey()));
+        this.numbers = build(maximumSize, expireAfterWrite, n -> {});
+        this.accounts = build(maximumSize, expireAfterWrite, n -> {});
+    }
+
+    private static <K, V> Cache<K, V> build(long maximumSize, Duration expireAfterWrite,
+                                            RemovalListener<K, V> removalListener) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .removalListener(removalListener)
+                .recordStats()
+                .build();
+    }
+
+    public @Nullable UUID getPlayerByAccount(String mcName, Function<String, UUID> loader) {
+        return get(byAccountName, mcName.toLowerCase(Locale.ROOT), k -> loader.apply(mcName),
+                (name, player) -> index(accountNamesByPlayer, player, name));
+    }
+
+    public @Nullable UUID getPlayer(int number, Function<Integer, UUID> loader) {
+        return get(byNumber, number, loader, (n, player) -> index(numbersByPlayer, player, n));
+    }
+
+    /**
+     * Gets the player number of a player.
+     * @return The player number, or {@code -1} if the player does not exist.
+     */
+    public int getPlayerNumber(UUID player, Function<UUID, Integer> loader) {
+        Integer number = get(numbers, player, k -> {
+            int loaded = loader.apply(k);
+            return loaded == -1 ? null : loaded;
+        }, null);
+        return number == null ? -1 : number;
+    }
+
+    /**
+     * Gets the Minecraft accounts of a player. A copy is returned, so callers may modify it freely.
+     */
+    public JsonArray getMCAccounts(UUID player, Function<UUID, JsonArray> loader) {
+        JsonArray array = get(accounts, player, loader, null);
+        return array == null ? new JsonArray() : array.deepCopy();
+    }
+
+    private <K, V> @Nullable V get(Cache<K, V> cache, K key, Function<K, V> loader, @Nullable BiConsumer<K, V> index) {
+        V value = cache.getIfPresent(key);
+        if (value != null) return value;
+        long loadedAt = generation;
+        value = loader.apply(key);
+        if (value != null) put(cache, key, value, loadedAt, index);
+        return value;
+    }
+
+    private synchronized <K, V> void put(Cache<K, V> cache, K key, V value, long loadedAt, @Nullable BiConsumer<K, V> index) {
+        // An invalidation while loading means the value might already be outdated
+        if (generation != loadedAt) return;
+        cache.put(key, value);
+        if (index != null) index.accept(key, value);
+    }
+
+    private static <K> void index(Map<UUID, Set<K>> keysByPlayer, UUID player, K key) {
+        keysByPlayer.computeIfAbsent(player, p -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private static <K> void unindex(Map<UUID, Set<K>> keysByPlayer, @Nullable UUID player, @Nullable K key) {
+        if (player == null || key == null) return;
+        keysByPlayer.computeIfPresent(player, (p, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Removes all entries related to the given player.
+     * @param player The player's {@link UUID} used in Caesar.
+     */
+    public synchronized void invalidatePlayer(UUID player) {
+        generation++;
+        numbers.invalidate(player);
+        accounts.invalidate(player);
+        Set<Integer> playerNumbers = numbersByPlayer.remove(player);
+        if (playerNumbers != null) byNumber.invalidateAll(List.copyOf(playerNumbers));
+        Set<String> accountNames = accountNamesByPlayer.remove(player);
+        if (accountNames != null) byAccountName.invalidateAll(List.copyOf(accountNames));
+    }
+
+    /**
+     * Removes all account related entries. Used if an account changed, but the owning player is unknown.
+     */
+    public synchronized void invalidateAccounts() {
+        generation++;
+        byAccountName.invalidateAll();
+        accounts.invalidateAll();
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        byAccountName.invalidateAll();
+        byNumber.invalidateAll();
+        numbers.invalidateAll();
+        accounts.invalidateAll();
+    }
+
+    /**
+     * Gets the hit and miss counters of all lookup types.
+     * @return A {@link JsonObject} containing the statistics per lookup type.
+     */
+    public JsonObject getStats() {
+        JsonObject o = new JsonObject();
+        o.add("byAccountName", toJson(byAccountName));
+        o.add("byNumber", toJson(byNumber));
+        o.add("numbers", toJson(numbers));
+        o.add("accounts", toJson(accounts));
+        return o;
+    }
+
+    private JsonObject toJson(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        JsonObject o = new JsonObject();
+        o.addProperty("size", cache.size());
+        o.addProperty("hits", stats.hitCount());
+        o.addProperty("misses", stats.missCount());
+        o.addProperty("hitRate", stats.hitRate());
+        o.addProperty("evictions", stats.evictionCount());
+        return o;
+    }
+}
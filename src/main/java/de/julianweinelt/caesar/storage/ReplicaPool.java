@@ -0,0 +1,145 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools for the read replicas of a {@link Storage}.<br>
+ * The replication lag of every replica is checked periodically. Replicas lagging behind more than
+ * {@link ReplicaSettings#getMaxLagSeconds()}, with stopped replication or failing connections are skipped
+ * until the next successful check.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class ReplicaPool {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaPool.class);
+
+    private final List<Replica> replicas;
+    private final int maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "caesar-db-replica-check");
+        t.setDaemon(true);
+        return t;
+    });
+
+    ReplicaPool(List<HikariDataSource> dataSources, ReplicaSettings settings) {
+        this.replicas = dataSources.stream().map(Replica::new).toList();
+        this.maxLagSeconds = settings.getMaxLagSeconds();
+        checker.scheduleWithFixedDelay(this::checkLag, 0, settings.getLagCheckInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the next healthy replica.
+     * @return A pooled {@link Connection} or {@code null} if no replica is available.
+     */
+    @Nullable
+    Connection getConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) continue;
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.healthy = false;
+                log.warn("Replica {} is not available: {}", replica.dataSource.getPoolName(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            Long lag = null;
+            boolean failed = false;
+            try (Connection conn = replica.dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                lag = readLag(stmt);
+            } catch (SQLException e) {
+                failed = true;
+                // Warn only once until the next successful check, the check is repeated every few seconds
+                if (replica.failureReported) {
+                    log.debug("Failed to check replication lag of {}: {}", replica.dataSource.getPoolName(), e.getMessage());
+                } else {
+                    log.warn("Failed to check replication lag of {}, it does not receive reads: {}. " +
+                            "Make sure the database user has the REPLICATION CLIENT privilege on the replica.",
+                            replica.dataSource.getPoolName(), e.getMessage());
+                    replica.failureReported = true;
+                }
+            }
+            if (!failed) replica.failureReported = false;
+            boolean healthy = lag != null && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                if (healthy) log.info("Replica {} is in sync and receives reads again.", replica.dataSource.getPoolName());
+                else if (!failed) log.warn("Replica {} is lagging behind ({}s) and does not receive reads.",
+                        replica.dataSource.getPoolName(), lag == null ? "unknown" : lag);
+            }
+            replica.lag = lag;
+            replica.healthy = healthy;
+        }
+    }
+
+    @Nullable
+    private Long readLag(Statement stmt) throws SQLException {
+        try (ResultSet set = stmt.executeQuery("SHOW REPLICA STATUS")) {
+            if (!set.next()) return null;
+            long lag = set.getLong("Seconds_Behind_Source");
+            return set.wasNull() ? null : lag;
+        } catch (SQLException e) {
+            // MySQL < 8.0.22
+            try (ResultSet set = stmt.executeQuery("SHOW SLAVE STATUS")) {
+                if (!set.next()) return null;
+                long lag = set.getLong("Seconds_Behind_Master");
+                return set.wasNull() ? null : lag;
+            }
+        }
+    }
+
+    /**
+     * Gets the current state of all replicas.
+     * @return A {@link JsonArray} containing the name, lag and health of every replica.
+     */
+    public JsonArray getStatus() {
+        JsonArray array = new JsonArray();
+        for (Replica replica : replicas) {
+            JsonObject o = new JsonObject();
+            o.addProperty("name", replica.dataSource.getPoolName());
+            o.addProperty("lagSeconds", replica.lag);
+            o.addProperty("healthy", replica.healthy);
+            array.add(o);
+        }
+        return array;
+    }
+
+    void close() {
+        checker.shutdownNow();
+        for (Replica replica : replicas) replica.dataSource.close();
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = false;
+        private volatile Long lag = null;
+        private boolean failureReported = false;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
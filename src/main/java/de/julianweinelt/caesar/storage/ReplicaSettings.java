@@ -0,0 +1,35 @@
+package de.julianweinelt.caesar.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for read replicas of the database. Read-only queries that tolerate slightly stale data are sent to
+ * replicas, while all writes go to the primary.<br>
+ * All time values are defined in milliseconds.
+ */
+@Getter
+@Setter
+public class ReplicaSettings {
+    /**
+     * Replicas in the format {@code host:port}. Leave empty to send all queries to the primary.
+     * The database name and credentials of the primary are used.<br>
+     * The replication lag is read with {@code SHOW REPLICA STATUS}, so this user needs the {@code REPLICATION CLIENT}
+     * privilege on every replica. Without it, the lag check fails and the replica never receives reads.
+     */
+    private List<String> hosts = new ArrayList<>();
+    /**
+     * Maximum replication lag in seconds a replica may have to still receive reads.
+     */
+    private int maxLagSeconds = 5;
+    /**
+     * Interval in which the replication lag of all replicas is checked.
+     */
+    private long lagCheckInterval = 10000;
+    private int maximumPoolSize = 10;
+
+    public ReplicaSettings() {}
+}
@@ -0,0 +1,67 @@
+package de.julianweinelt.caesar.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Hands out unique numbers from blocks reserved in the database (hi/lo).<br>
+ * A block of {@code blockSize} numbers is reserved with a single database round-trip.
+ * Numbers of the current block are handed out without locking; only reserving the next block is serialized.
+ * Numbers left in a block when Caesar stops are skipped, so sequences may contain gaps.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class SequenceAllocator {
+    private final IntToLongFunction blockReserver;
+    private final int blockSize;
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+
+    /**
+     * Creates a new allocator.
+     * @param blockReserver Reserves the given amount of numbers and returns the first one,
+     *                      or {@code -1} if the block could not be reserved.
+     * @param blockSize The amount of numbers to reserve at once.
+     */
+    public SequenceAllocator(IntToLongFunction blockReserver, int blockSize) {
+        this.blockReserver = blockReserver;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Gets the next number of the sequence.
+     * @return The next unique number, or {@code -1} if no new block could be reserved.
+     */
+    public long next() {
+        while (true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if (value < block.end) return value;
+            synchronized (this) {
+                if (current.get() != block) continue;
+                long start = blockReserver.applyAsLong(blockSize);
+                if (start < 0) return -1;
+                current.set(new Block(start, start + blockSize));
+            }
+        }
+    }
+
+    /**
+     * Discards the rest of the current block, so the next number is taken from a newly reserved block.
+     * Numbers that are being handed out at the same time might still come from the discarded block.
+     */
+    public synchronized void reset() {
+        current.set(new Block(0, 0));
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
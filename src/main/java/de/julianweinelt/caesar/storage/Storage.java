@@ -2,18 +2,24 @@ package de.julianweinelt.caesar.storage;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import de.julianweinelt.caesar.auth.CPermission;
 import de.julianweinelt.caesar.auth.User;
 import de.julianweinelt.caesar.auth.UserRole;
 import de.julianweinelt.caesar.discord.ticket.Ticket;
 import de.julianweinelt.caesar.discord.ticket.TicketStatus;
 import de.julianweinelt.caesar.discord.ticket.TicketType;
+import de.julianweinelt.caesar.exceptions.StorageException;
 import de.julianweinelt.caesar.util.DatabaseColorParser;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.drop.Drop;
+import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.truncate.Truncate;
 import net.sf.jsqlparser.statement.update.Update;
 import org.jspecify.annotations.Nullable;
@@ -21,10 +27,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Getter
 public abstract class Storage {
@@ -35,7 +60,31 @@ public abstract class Storage {
     private final String user;
     private final String password;
 
-    public Connection conn;
+    @Getter(AccessLevel.NONE)
+    private HikariDataSource dataSource;
+    private ConnectionPoolSettings poolSettings = new ConnectionPoolSettings();
+    private ConnectionCircuitBreaker circuitBreaker = new ConnectionCircuitBreaker(poolSettings);
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+    @Getter(AccessLevel.NONE)
+    private WriteBehindQueue writeQueue;
+    @Setter
+    private WriteBehindSettings writeBehindSettings = new WriteBehindSettings();
+    @Setter
+    private PlayerCache playerCache = new PlayerCache(10000, Duration.ofMinutes(10));
+    /**
+     * Whether UUID columns are stored as {@code BINARY(16)} instead of {@code VARCHAR(36)}.
+     */
+    @Setter
+    private boolean binaryUUIDs = false;
+    @Setter
+    private ReplicaSettings replicaSettings = new ReplicaSettings();
+    private ReplicaPool replicaPool;
+    private final StorageMetrics metrics = new StorageMetrics();
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<StorageTransaction> transaction = new ThreadLocal<>();
+    @Getter(AccessLevel.NONE)
+    private final SequenceAllocator playerNumbers = new SequenceAllocator(this::reservePlayerNumbers, 50);
 
     /**
      * Constructor for the Storage class.
@@ -55,58 +104,436 @@ public abstract class Storage {
     }
 
     /**
-     * Executes the given SQL script on the database connection.
-     * Dangerous statements like DROP, TRUNCATE, DELETE without WHERE clause, and UPDATE without WHERE clause are blocked.
-     * @param script The SQL script to execute.
-     * @return True if the script was executed successfully, false otherwise.
+     * Opens the connection pool for this storage. An already opened pool will be closed first.
+     * @param jdbcUrl The JDBC URL used to create new connections.
+     * @param driverClassName The fully qualified class name of the JDBC driver.
+     * @throws RuntimeException if the pool could not be initialized, e.g. because the database is not reachable.
      */
-    public boolean executeScript(String script) {
-        if (conn == null) return false;
+    protected void openPool(String jdbcUrl, String driverClassName) {
+        closePool();
+        HikariConfig config = createPoolConfig(jdbcUrl, driverClassName);
+        config.setPoolName("caesar-" + database);
+        config.setMaximumPoolSize(poolSettings.getMaximumPoolSize());
+        dataSource = new HikariDataSource(config);
+        log.info("Opened connection pool (min idle: {}, max size: {})",
+                poolSettings.getMinimumIdle(), poolSettings.getMaximumPoolSize());
+        if (writeBehindSettings.isEnabled()) writeQueue = new WriteBehindQueue(this::getConnection, writeBehindSettings, metrics);
+        if (!replicaSettings.getHosts().isEmpty()) openReplicaPools(driverClassName);
+    }
+
+    private HikariConfig createPoolConfig(String jdbcUrl, String driverClassName) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setDriverClassName(driverClassName);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMinimumIdle(poolSettings.getMinimumIdle());
+        config.setIdleTimeout(poolSettings.getIdleTimeout());
+        config.setConnectionTimeout(poolSettings.getConnectionTimeout());
+        config.setMaxLifetime(poolSettings.getMaxLifetime());
+        if (poolSettings.getValidationQuery() != null && !poolSettings.getValidationQuery().isBlank())
+            config.setConnectionTestQuery(poolSettings.getValidationQuery());
+        if (poolSettings.getLeakDetectionThreshold() > 0)
+            config.setLeakDetectionThreshold(poolSettings.getLeakDetectionThreshold());
+        return config;
+    }
+
+    private void openReplicaPools(String driverClassName) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (String host : replicaSettings.getHosts()) {
+            String jdbcUrl = getReplicaJdbcUrl(host);
+            if (jdbcUrl == null) {
+                log.warn("This storage type does not support read replicas. All queries are sent to the primary.");
+                return;
+            }
+            HikariConfig config = createPoolConfig(jdbcUrl, driverClassName);
+            config.setPoolName("caesar-" + database + "-replica-" + host);
+            config.setMinimumIdle(Math.min(poolSettings.getMinimumIdle(), replicaSettings.getMaximumPoolSize()));
+            config.setMaximumPoolSize(replicaSettings.getMaximumPoolSize());
+            config.setReadOnly(true);
+            config.setInitializationFailTimeout(-1); // An unavailable replica must not prevent startup
+            dataSources.add(new HikariDataSource(config));
+        }
+        replicaPool = new ReplicaPool(dataSources, replicaSettings);
+        log.info("Opened connection pools for {} read replicas.", dataSources.size());
+    }
+
+    /**
+     * Gets the JDBC URL used to connect to a read replica.
+     * @param host The replica in the format {@code host:port}.
+     * @return The JDBC URL or {@code null} if this storage does not support read replicas.
+     */
+    protected @Nullable String getReplicaJdbcUrl(String host) {
+        return null;
+    }
+
+    /**
+     * Closes the connection pool, if opened. Borrowed connections are closed once they are returned.<br>
+     * Queued writes are flushed before the pool is closed.
+     */
+    protected void closePool() {
+        if (writeQueue != null) writeQueue.close();
+        writeQueue = null;
+        if (replicaPool != null) replicaPool.close();
+        replicaPool = null;
+        if (dataSource != null && !dataSource.isClosed()) dataSource.close();
+        dataSource = null;
+    }
+
+    /**
+     * Checks whether the connection pool is opened and accepts new borrows.
+     * @return {@code true} if the pool is open, {@code false} otherwise.
+     */
+    public boolean isPoolOpen() {
+        return dataSource != null && !dataSource.isClosed();
+    }
 
+    /**
+     * Borrows a connection from the pool.<br>
+     * The connection <b>must</b> be returned by calling {@link Connection#close()}, preferably by using
+     * try-with-resources. Acquisitions are recorded as {@link StorageMetrics#ACQUIRE} in {@link #getMetrics()}.
+     * @return A pooled {@link Connection}.
+     * @throws SQLException if the pool is not opened or no connection could be acquired in time.
+     */
+    public Connection getConnection() throws SQLException {
+        StorageTransaction tx = transaction.get();
+        if (tx != null) return tx.handle();
+        if (dataSource == null) {
+            metrics.record(StorageMetrics.ACQUIRE, 0, true);
+            throw new SQLException("Connection pool has not been opened");
+        }
+        if (circuitBreaker.isOpen()) {
+            metrics.record(StorageMetrics.ACQUIRE, 0, true);
+            throw new SQLTransientConnectionException("Database is not reachable. Retrying in "
+                    + circuitBreaker.getRemainingBackoff() + " ms");
+        }
+        long start = System.nanoTime();
         try {
-            List<Statement> statements = CCJSqlParserUtil.parseStatements(script).getStatements();
+            Connection conn = dataSource.getConnection();
+            circuitBreaker.recordSuccess();
+            metrics.record(StorageMetrics.ACQUIRE, System.nanoTime() - start, false);
+            return metrics.tracked(conn);
+        } catch (SQLException e) {
+            circuitBreaker.recordFailure();
+            metrics.record(StorageMetrics.ACQUIRE, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
 
-            for (Statement stmtObj : statements) {
-                if (isDangerous(stmtObj)) {
-                    log.warn("Blocked potentially destructive SQL statement: {}", stmtObj);
-                    return false;
+    public void setPoolSettings(ConnectionPoolSettings poolSettings) {
+        this.poolSettings = poolSettings;
+        this.circuitBreaker = new ConnectionCircuitBreaker(poolSettings);
+    }
+
+    /**
+     * Re-establishes the connection to the database without reloading any data into memory.<br>
+     * The default implementation calls {@link #connect()}.
+     * @return True if the connection has been re-established, false otherwise.
+     */
+    protected boolean reconnect() {
+        return connect();
+    }
+
+    /**
+     * Starts reconnecting in the background, if not already running. Attempts are spaced by the backoff of
+     * the {@link ConnectionCircuitBreaker}, so callers never wait for the database to come back.
+     */
+    protected void scheduleReconnect() {
+        if (!reconnecting.compareAndSet(false, true)) return;
+        Thread thread = new Thread(() -> {
+            try {
+                while (!isPoolOpen()) {
+                    Thread.sleep(circuitBreaker.getRemainingBackoff());
+                    log.info("Trying to reconnect to the database...");
+                    if (reconnect()) {
+                        circuitBreaker.recordSuccess();
+                    } else {
+                        circuitBreaker.recordFailure();
+                        if (!circuitBreaker.isOpen()) Thread.sleep(poolSettings.getReconnectBackoff());
+                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                reconnecting.set(false);
+            }
+        }, "caesar-db-reconnect");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Borrows a connection for read-only queries that tolerate slightly stale data.<br>
+     * If read replicas are configured, a connection to an up-to-date replica is returned. Otherwise, or inside
+     * a transaction, this is the same as {@link #getConnection()}.
+     * @return A pooled {@link Connection} that must only be used for reading.
+     * @throws SQLException if no connection could be acquired in time.
+     */
+    protected Connection getReadConnection() throws SQLException {
+        ReplicaPool replicas = replicaPool;
+        if (replicas == null || isInTransaction()) return getConnection();
+        long start = System.nanoTime();
+        Connection conn = replicas.getConnection();
+        if (conn == null) return getConnection();
+        metrics.record(StorageMetrics.ACQUIRE_REPLICA, System.nanoTime() - start, false);
+        return metrics.tracked(conn);
+    }
 
-                try (java.sql.Statement stmt = conn.createStatement()) {
-                    log.debug("Executing SQL: {}", stmtObj);
-                    stmt.execute(stmtObj.toString());
+    /**
+     * Checks whether the calling thread currently runs inside {@link #inTransaction(Function)}.
+     * @return True if a transaction is active on this thread.
+     */
+    public boolean isInTransaction() {
+        return transaction.get() != null;
+    }
+
+    /**
+     * Executes and times an operation of the provider, see {@link StorageMetrics#time(String, Supplier)}.<br>
+     * Providers wrap their operations with this, so synchronous callers and {@link AsyncStorage} are recorded alike.
+     * @param operation The name the operation is recorded as.
+     * @param call The operation to execute.
+     * @return The result of {@code call}.
+     * @param <T> The result type of the operation.
+     */
+    protected <T> T timed(String operation, Supplier<T> call) {
+        return metrics.time(operation, call);
+    }
+
+    /**
+     * Executes and times an operation of the provider without a result.
+     * @param operation The name the operation is recorded as.
+     * @param call The operation to execute.
+     */
+    protected void timed(String operation, Runnable call) {
+        metrics.time(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executes several storage operations as one unit of work, using a single connection and a single commit.<br>
+     * All provider calls made by {@code work} on the calling thread share the transaction. If any statement fails
+     * or {@code work} throws, all changes are rolled back. Nested calls join the outer transaction.
+     * <pre>{@code
+     * UUID process = storage.inTransaction(tx -> {
+     *     UUID id = tx.createProcess(type, status, creator, comment);
+     *     tx.assignPlayerToProcess(id, player);
+     *     return id;
+     * });
+     * }</pre>
+     * @param work The operations to execute, receiving this {@link Storage}.
+     * @return The result of {@code work}, or {@code null} if the transaction has been rolled back.
+     * @param <T> The result type of the operations.
+     */
+    public <T> @Nullable T inTransaction(Function<Storage, T> work) {
+        StorageTransaction tx = transaction.get();
+        if (tx != null) {
+            try {
+                return work.apply(this);
+            } catch (RuntimeException e) {
+                tx.setRollbackOnly();
+                throw e;
+            }
+        }
+
+        try (Connection conn = getConnection()) {
+            tx = new StorageTransaction(conn);
+            conn.setAutoCommit(false);
+            transaction.set(tx);
+            try {
+                T result = work.apply(this);
+                if (tx.isRollbackOnly()) {
+                    conn.rollback();
+                    log.warn("Transaction has been rolled back because a statement failed.");
+                    return null;
                 }
+                conn.commit();
+                return result;
+            } catch (RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                transaction.remove();
+                conn.setAutoCommit(true);
             }
+        } catch (SQLException e) {
+            log.error("Failed to execute transaction: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Executes several storage operations without a result as one unit of work.
+     * @param work The operations to execute, receiving this {@link Storage}.
+     * @return True if the transaction has been committed, false if it has been rolled back.
+     * @see #inTransaction(Function)
+     */
+    public boolean runInTransaction(Consumer<Storage> work) {
+        return inTransaction(s -> {
+            work.accept(s);
+            return Boolean.TRUE;
+        }) != null;
+    }
 
+    /**
+     * Queues an append-only insert to be written in a batch by the write-behind queue.<br>
+     * If the write-behind queue is disabled or a transaction is active, the statement is executed immediately.
+     * @param sql The SQL statement to execute.
+     * @param params The parameters bound to the placeholders of the statement, in order.
+     */
+    protected void enqueueWrite(String sql, Object... params) {
+        if (writeQueue != null && !isInTransaction()) {
+            metrics.time("writeBehind.enqueue", () -> {
+                writeQueue.enqueue(sql, params);
+                return null;
+            });
+            return;
+        }
+        try (Connection conn = getConnection();
+             PreparedStatement pS = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) pS.setObject(i + 1, params[i]);
+            pS.execute();
+        } catch (SQLException e) {
+            log.error("Failed to execute write: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all inserts currently held by the write-behind queue on the calling thread.
+     */
+    public void flushPendingWrites() {
+        if (writeQueue != null) writeQueue.flush();
+    }
+
+    /**
+     * Executes the given SQL script on the database connection.
+     * Dangerous statements like DROP, TRUNCATE, DELETE without WHERE clause, and UPDATE without WHERE clause are blocked.<br>
+     * All statements run in one transaction; consecutive INSERT, UPDATE and DELETE statements are sent as one batch.
+     * Note that engines like MySQL commit implicitly on DDL statements, so only the statements after the last DDL
+     * statement are rolled back on failure.
+     * @param script The SQL script to execute.
+     * @return True if the script was executed successfully, false otherwise.
+     */
+    public boolean executeScript(String script) {
+        if (!isPoolOpen()) return false;
+
+        List<ParsedStatement> statements = parseScript(script);
+        if (statements == null) return false;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (java.sql.Statement stmt = conn.createStatement()) {
+                List<String> batch = new ArrayList<>();
+                for (ParsedStatement statement : statements) {
+                    if (statement.batchable()) {
+                        batch.add(statement.sql());
+                        continue;
+                    }
+                    executeScriptBatch(stmt, batch);
+                    executeScriptStatement(stmt, statement.sql());
+                }
+                executeScriptBatch(stmt, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
             return true;
         } catch (Exception e) {
             log.error("Error while executing SQL script: {}", e.getMessage(), e);
             return false;
         }
     }
+
+    /**
+     * Parses and validates the given script.
+     * @return The statements of the script or {@code null} if it could not be parsed or contains dangerous statements.
+     */
+    private @Nullable List<ParsedStatement> parseScript(String script) {
+        List<ParsedStatement> statements = new ArrayList<>();
+        try {
+            for (Statement stmtObj : CCJSqlParserUtil.parseStatements(script).getStatements()) {
+                if (isDangerous(stmtObj)) {
+                    log.warn("Blocked potentially destructive SQL statement: {}", stmtObj);
+                    return null;
+                }
+                boolean batchable = stmtObj instanceof Insert || stmtObj instanceof Update || stmtObj instanceof Delete;
+                statements.add(new ParsedStatement(stmtObj.toString(), batchable));
+            }
+        } catch (Exception e) {
+            log.error("Failed to parse SQL script: {}", e.getMessage());
+            return null;
+        }
+        return statements;
+    }
+
+    private void executeScriptStatement(java.sql.Statement stmt, String sql) throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            log.debug("Executing SQL: {}", sql);
+            stmt.execute(sql);
+            failed = false;
+        } finally {
+            metrics.recordScriptStatement(sql, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void executeScriptBatch(java.sql.Statement stmt, List<String> batch) throws SQLException {
+        if (batch.isEmpty()) return;
+        if (batch.size() == 1) {
+            executeScriptStatement(stmt, batch.get(0));
+            batch.clear();
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            for (String sql : batch) stmt.addBatch(sql);
+            log.debug("Executing batch of {} SQL statements", batch.size());
+            stmt.executeBatch();
+            failed = false;
+        } finally {
+            long share = (System.nanoTime() - start) / batch.size();
+            for (String sql : batch) metrics.recordScriptStatement(sql, share, failed);
+            stmt.clearBatch();
+            batch.clear();
+        }
+    }
+
     private boolean isDangerous(Statement stmt) {
         if (stmt instanceof Drop || stmt instanceof Truncate) return true;
         if (stmt instanceof Delete del && del.getWhere() == null) return true;
         return stmt instanceof Update upd && upd.getWhere() == null;
     }
 
+    /**
+     * A single validated statement of a script.
+     * @param sql The SQL of the statement.
+     * @param batchable Whether the statement may be executed in a JDBC batch together with other statements.
+     */
+    private record ParsedStatement(String sql, boolean batchable) {}
+
 
     /**
-     * Creates a connection to the database. Will set the {@link #conn} field.<br><br>
+     * Creates a connection to the database. Will open the connection pool using {@link #openPool(String, String)}.<br><br>
      * <b>Important: </b>This method should always call {@link #executeAfterConnection()} after a successful connection!
      * @return True if the connection was successful, false otherwise.
      */
     public abstract boolean connect();
 
     /**
-     * Disconnects from the database. Will set the {@link #conn} field to null.
-     * Overriding this method should do something like {@link Connection#close()} to the {@link #conn} object.
+     * Disconnects from the database.
+     * Overriding this method should call {@link #closePool()} to release all pooled connections.
      */
     public abstract void disconnect();
 
     /**
-     * Checks if the connection to the database is still valid.
-     * If not, it should try to reconnect.
+     * Checks if the connection pool to the database is still open and the database is reachable.
+     * If not, it should start reconnecting using {@link #scheduleReconnect()} and return immediately.
      * @return True if the connection is valid, false otherwise.
      */
     public abstract boolean checkConnection();
@@ -117,7 +544,7 @@ public abstract class Storage {
      * <p>An example implementation in MySQL could look like this:</p>
      *
      * <pre>{@code
-     * try {
+     * try (Connection conn = getConnection()) {
      *     DatabaseMetaData meta = conn.getMetaData();
      *     for (String table : tables) {
      *         try (ResultSet rs = meta.getTables(null, null, table, new String[] {"TABLE"})) {
@@ -154,6 +581,90 @@ public abstract class Storage {
      */
     public abstract void executeAfterConnection();
 
+    /**
+     * Converts the given UUID to the parameter type used for UUID columns of this storage.
+     * @param uuid The {@link UUID} to convert. May be {@code null}.
+     * @return A 16 byte array if binary UUIDs are enabled, the string representation otherwise.
+     */
+    protected @Nullable Object uuidParam(@Nullable UUID uuid) {
+        if (uuid == null) return null;
+        return isBinaryUUIDs() ? toBytes(uuid) : uuid.toString();
+    }
+
+    /**
+     * Binds a UUID to the given statement, respecting the UUID column format of this storage.
+     * @param pS The {@link PreparedStatement} to bind the value to.
+     * @param index The parameter index, starting at 1.
+     * @param uuid The {@link UUID} to bind. May be {@code null}.
+     * @throws SQLException If the value could not be bound.
+     */
+    protected void setUUID(PreparedStatement pS, int index, @Nullable UUID uuid) throws SQLException {
+        if (uuid == null) {
+            pS.setNull(index, isBinaryUUIDs() ? Types.BINARY : Types.VARCHAR);
+        } else if (isBinaryUUIDs()) {
+            pS.setBytes(index, toBytes(uuid));
+        } else {
+            pS.setString(index, uuid.toString());
+        }
+    }
+
+    /**
+     * Reads a UUID column from the given result set, respecting the UUID column format of this storage.
+     * @return The read {@link UUID} or {@code null} if the column is {@code NULL} or empty.
+     */
+    protected @Nullable UUID getUUID(ResultSet set, int column) throws SQLException {
+        if (isBinaryUUIDs()) return fromBytes(set.getBytes(column));
+        String value = set.getString(column);
+        return (value == null || value.isEmpty()) ? null : UUID.fromString(value);
+    }
+
+    /**
+     * Reads a UUID column from the given result set, respecting the UUID column format of this storage.
+     * @return The read {@link UUID} or {@code null} if the column is {@code NULL} or empty.
+     */
+    protected @Nullable UUID getUUID(ResultSet set, String column) throws SQLException {
+        return getUUID(set, set.findColumn(column));
+    }
+
+    /**
+     * Reads a UUID column as its string representation, e.g. for JSON responses.
+     * @return The UUID as string or {@code null} if the column is {@code NULL} or empty.
+     */
+    protected @Nullable String getUUIDString(ResultSet set, int column) throws SQLException {
+        UUID uuid = getUUID(set, column);
+        return uuid == null ? null : uuid.toString();
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static @Nullable UUID fromBytes(byte @Nullable [] bytes) {
+        if (bytes == null || bytes.length != 16) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Checks whether this storage ships its own schema instead of using the migration scripts
+     * provided by {@link DatabaseVersionManager}.
+     * @return {@code true} if migration scripts must not be applied to this storage.
+     */
+    public boolean usesBundledSchema() {
+        return false;
+    }
+
+    /**
+     * Creates the parts of the schema this storage maintains itself instead of the version scripts.<br>
+     * Called whenever the connection pool is opened and again after version scripts have been applied,
+     * so it must be safe to run repeatedly.
+     * @throws SQLException if the schema could not be updated.
+     */
+    public void upgradeSchema() throws SQLException {}
+
     /**
      * This method should create all necessary tables in the database.
      * @deprecated Use migration scripts instead.
@@ -163,7 +674,9 @@ public abstract class Storage {
 
     /**
      * This should insert all necessary default data into the database.
-     * This includes, but is not limited to: default roles, permissions, and initial configurations.
+     * This includes, but is not limited to: default roles, permissions, and initial configurations.<br>
+     * Called again on every start where {@link #systemDataExist()} fails, so it must only insert missing data.
+     * Default roles are only created on a fresh install.
      */
     public abstract void insertDefaultData();
 
@@ -172,9 +685,18 @@ public abstract class Storage {
     /**
      * This method should load the user data by the given name from the database and construct a {@link User} object from it.
      * @param username The username of the user to load.
-     * @return The {@link User} object representing the loaded user.
+     * @return The {@link User} object representing the loaded user, or an empty {@link Optional} if no such user exists.
+     * @throws StorageException if the user could not be loaded, e.g. because the database is not reachable.
      */
-    public abstract User getUser(String username);
+    public abstract Optional<User> getUser(String username);
+
+    /**
+     * This method should load the user data by the given unique ID from the database and construct a {@link User} object from it.
+     * @param uuid The unique ID of the user to load.
+     * @return The {@link User} object representing the loaded user, or an empty {@link Optional} if no such user exists.
+     * @throws StorageException if the user could not be loaded, e.g. because the database is not reachable.
+     */
+    public abstract Optional<User> getUser(UUID uuid);
 
     /**
      * This method should delete the user with the given username from the database.
@@ -199,8 +721,11 @@ public abstract class Storage {
     public abstract void createUser(User user);
 
     /**
-     * This method should return a list of all users in the database.
+     * This method should return a list of all users in the database, including their permissions and roles.<br>
+     * Implementations should load users in a constant number of set-based queries instead of one query per user,
+     * as this method is being called on startup.
      * @return A {@link List} of {@link User} objects representing all users.
+     * @throws StorageException if the users could not be loaded.
      */
     public abstract List<User> getAllUsers();
 
@@ -291,6 +816,7 @@ public abstract class Storage {
     /**
      * Adds a message to the given ticket's message history.<br><br>
      * This method is being called whenever a new message is sent in a ticket channel.
+     * Implementations should use {@link #enqueueWrite(String, Object...)}, as transcripts are append-only.
      * @param ticket A {@link Ticket} object representing the ticket to which the message should be added.
      * @param message The message content as a {@link String}.
      * @param sender The sender of the message as a {@link String} representing Discord's user ID.
@@ -328,7 +854,7 @@ public abstract class Storage {
     /**
      * Creates a new player row in the database.
      * Players usually have to index fields: UUID and the player's number.
-     * This method should automatically assign the next available player number
+     * This method should automatically assign the next available player number using {@link #nextPlayerNumber()}
      * and generate a new UUID using {@link UUID#randomUUID()} that will be returned afterward.
      * @return The {@link UUID} of the newly created player.
      */
@@ -343,10 +869,37 @@ public abstract class Storage {
 
     /**
      * Creates a new player row in the database with the given UUID.
-     * A player number should be generated with a randomizer such as {@link SecureRandom#nextInt()}.
+     * The player number is assigned using {@link #nextPlayerNumber()}.
      * @param uuid A {@link UUID} representing the player's unique ID.
+     * @return The assigned player number, or {@code -1} if the player could not be created.
+     */
+    public abstract int createPlayer(UUID uuid);
+
+    /**
+     * Gets the next unused player number. Numbers are reserved in blocks using {@link #reservePlayerNumbers(int)}.
+     * @return The next player number, or {@code -1} if no numbers could be reserved.
+     */
+    protected int nextPlayerNumber() {
+        return (int) playerNumbers.next();
+    }
+
+    /**
+     * Discards the block of player numbers reserved by this instance, so the next number is reserved from the
+     * database again. Must be called after player numbers have been written without {@link #nextPlayerNumber()}.
+     */
+    protected void resetPlayerNumbers() {
+        playerNumbers.reset();
+    }
+
+    /**
+     * Reserves a block of player numbers in the database.<br>
+     * For developers:
+     * The reservation must be atomic across multiple Caesar instances sharing the database,
+     * and the first block must start above all player numbers already in use.
+     * @param amount The amount of numbers to reserve.
+     * @return The first reserved number, or {@code -1} if the block could not be reserved.
      */
-    public abstract void createPlayer(UUID uuid);
+    protected abstract long reservePlayerNumbers(int amount);
 
     /**
      * Assigns a Minecraft account UUID to the internal player UUID.
@@ -390,6 +943,63 @@ public abstract class Storage {
      */
     public abstract JsonObject getPlayer(UUID player);
 
+    /**
+     * Gets the full profile of a player, in the same format as {@link #getPlayer(UUID)}.<br>
+     * In contrast to {@link #getPlayer(UUID)}, the profile is loaded on the given executor without blocking the caller.
+     * After the player number has been read, the accounts, processes, punishments and notes are loaded concurrently,
+     * each as a read-only query on its own pooled connection. There is no shared transaction, so the sections might
+     * reflect slightly different points in time. The executor should be bounded, as it limits how many connections
+     * are held at once.
+     * @param player The player's {@link UUID} used in Caesar.
+     * @param executor The {@link Executor} to run the queries on.
+     * @return A {@link CompletableFuture} completing with the player's profile,
+     * or with {@code null} if the player does not exist. Completes exceptionally if a query failed.
+     */
+    public CompletableFuture<JsonObject> getPlayerProfile(UUID player, Executor executor) {
+        long start = System.nanoTime();
+        CompletableFuture<JsonObject> profile = loadProfileSection("number", () -> getPlayerNumber(player), executor)
+                .thenCompose(number -> number == -1 ? CompletableFuture.completedFuture(null)
+                        : loadProfileSections(player, number, executor));
+        // The sections are recorded by the provider on their own, this covers the whole profile
+        return profile.whenComplete((o, e) ->
+                metrics.record("getPlayerProfile", System.nanoTime() - start, e != null));
+    }
+
+    private CompletableFuture<JsonObject> loadProfileSections(UUID player, int number, Executor executor) {
+        CompletableFuture<JsonArray> accounts = loadProfileSection("mcAccounts", () -> getMCAccounts(player), executor);
+        CompletableFuture<JsonArray> processes = loadProfileSection("processes",
+                () -> getProcessesForPlayer(player), executor);
+        CompletableFuture<JsonArray> punishments = loadProfileSection("punishments",
+                () -> getPunishmentsForPlayer(player), executor);
+        CompletableFuture<JsonArray> notes = loadProfileSection("notes", () -> getPlayerNotes(player), executor);
+        return CompletableFuture.allOf(accounts, processes, punishments, notes).thenApply(v -> {
+            JsonObject o = new JsonObject();
+            o.addProperty("UUID", player.toString());
+            o.addProperty("playerNumber", number);
+            o.add("mcAccounts", accounts.join());
+            o.add("processes", processes.join());
+            o.add("punishments", punishments.join());
+            o.add("notes", notes.join());
+            return o;
+        });
+    }
+
+    /**
+     * Loads one section of a player profile on the given executor. The section methods log failed queries and return
+     * empty results, so a failure recorded in the {@link StorageMetrics} fails the future instead.
+     */
+    private <T> CompletableFuture<T> loadProfileSection(String section, Supplier<T> loader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> metrics.check(loader,
+                () -> new StorageException("Failed to load " + section + " of player profile")), executor);
+    }
+
+    /**
+     * Gets the player number of the given player.
+     * @param player The player's {@link UUID} used in Caesar.
+     * @return The player's number, or {@code -1} if the player does not exist.
+     */
+    public abstract int getPlayerNumber(UUID player);
+
     /**
      * Gets the player's UUID by their player number.
      * @param player The player's number as an {@code int}.
@@ -421,6 +1031,17 @@ public abstract class Storage {
      */
     public abstract JsonArray getProcessesForPlayer(UUID player);
 
+    /**
+     * Gets one page of the processes associated with the given player UUID, newest first.
+     * @param player The player's {@link UUID} used in Caesar.
+     * @param cursor The {@link PageCursor} returned with the previous page, or {@code null} for the first page.
+     * @param limit The maximum amount of processes to return.
+     * @return A {@link JsonObject} created by {@link PageCursor#page(JsonArray, PageCursor)},
+     * containing the processes in the format of {@link #getProcessesForPlayer(UUID)}.
+     * @throws StorageException if the page could not be loaded, e.g. because the database is not reachable.
+     */
+    public abstract JsonObject getProcessesForPlayer(UUID player, @Nullable PageCursor cursor, int limit);
+
     /**
      * Gets all punishments associated with the given player UUID.
      * @param player The player's {@link UUID} used in Caesar.
@@ -442,6 +1063,17 @@ public abstract class Storage {
      */
     public abstract JsonArray getPunishmentsForPlayer(UUID player);
 
+    /**
+     * Gets one page of the punishments associated with the given player UUID, newest first.
+     * @param player The player's {@link UUID} used in Caesar.
+     * @param cursor The {@link PageCursor} returned with the previous page, or {@code null} for the first page.
+     * @param limit The maximum amount of punishments to return.
+     * @return A {@link JsonObject} created by {@link PageCursor#page(JsonArray, PageCursor)},
+     * containing the punishments in the format of {@link #getPunishmentsForPlayer(UUID)}.
+     * @throws StorageException if the page could not be loaded, e.g. because the database is not reachable.
+     */
+    public abstract JsonObject getPunishmentsForPlayer(UUID player, @Nullable PageCursor cursor, int limit);
+
     /**
      * Gets all notes associated with the given player UUID.
      * @param player The player's {@link UUID} used in Caesar.
@@ -459,7 +1091,18 @@ public abstract class Storage {
     public abstract JsonArray getPlayerNotes(UUID player);
 
     /**
-     * Creates a new note for the given player UUID.
+     * Gets one page of the notes associated with the given player UUID, newest first.
+     * @param player The player's {@link UUID} used in Caesar.
+     * @param cursor The {@link PageCursor} returned with the previous page, or {@code null} for the first page.
+     * @param limit The maximum amount of notes to return.
+     * @return A {@link JsonObject} created by {@link PageCursor#page(JsonArray, PageCursor)},
+     * containing the notes in the format of {@link #getPlayerNotes(UUID)}.
+     * @throws StorageException if the page could not be loaded, e.g. because the database is not reachable.
+     */
+    public abstract JsonObject getPlayerNotes(UUID player, @Nullable PageCursor cursor, int limit);
+
+    /**
+     * Creates a new note for the given player UUID. The note is written by the write-behind queue.
      * @param player The {@link UUID} of the player to whom the note will be added.
      * @param user The {@link UUID} of the user creating the note.
      * @param note The content of the note as a {@link String}.
@@ -564,6 +1207,15 @@ public abstract class Storage {
      */
     public abstract List<String> getUserPermissions(UUID uuid);
 
+    /**
+     * Gets the permissions granted directly to all users with a single query.
+     * Permissions granted by roles are not included.
+     * @return A {@link Map} of user {@link UUID}s to their permission keys. Users without permissions are missing.
+     * @throws StorageException if the permissions could not be loaded. An empty map always means that no user
+     * has direct permissions.
+     */
+    public abstract Map<UUID, Set<String>> getAllUserPermissions();
+
     /**
      * Gets all Minecraft accounts linked to the given player UUID.
      * @param player The player's {@link UUID} used in Caesar.
@@ -578,6 +1230,25 @@ public abstract class Storage {
      */
     public abstract JsonArray getMCAccounts(UUID player);
 
+    /**
+     * Streams all players, their Minecraft accounts, notes and punishments to the given writer as NDJSON.<br>
+     * Every line is a JSON object with a {@code type} field ({@code player}, {@code account}, {@code note} or
+     * {@code punishment}). Players are written first, so the output can be imported in a single pass.
+     * Rows are read with a forward-only cursor, so memory usage does not depend on the amount of players.
+     * @param out The {@link Writer} to write to. It is flushed, but not closed.
+     * @throws IOException If the data could not be read or written.
+     */
+    public abstract void exportPlayers(Writer out) throws IOException;
+
+    /**
+     * Imports players, Minecraft accounts, notes and punishments from NDJSON created by {@link #exportPlayers(Writer)}.<br>
+     * Rows are inserted in batches. Rows that already exist are skipped, invalid lines are counted and skipped.
+     * @param in The {@link Reader} to read from.
+     * @return A {@link JsonObject} containing the amount of inserted rows per type and the amount of skipped lines.
+     * @throws IOException If the input could not be read or a batch could not be written.
+     */
+    public abstract JsonObject importPlayers(Reader in) throws IOException;
+
     /**
      * Gets the Discord ID mapped to the given user UUID.
      * @param user The user's {@link UUID}.
@@ -5,6 +5,8 @@ import de.julianweinelt.caesar.storage.providers.*;
 import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+
 /**
  * Factory class for creating and managing storage providers.
  * @author JulianWeinelt
@@ -13,6 +15,7 @@ import org.jetbrains.annotations.Nullable;
 @Getter
 public class StorageFactory {
     private Storage usedStorage;
+    private AsyncStorage asyncStorage;
 
     public static final StorageType MYSQL = new StorageType("MYSQL", 3306, config -> new MySQLStorageProvider(
             config.getDatabaseHost(),
@@ -22,6 +25,15 @@ public class StorageFactory {
             config.getDatabasePassword()
     ));
 
+    /**
+     * Embedded, file-based storage. No database server needed; the port is unused.
+     */
+    public static final StorageType H2 = new StorageType("H2", 0, config -> new H2StorageProvider(
+            config.getDatabaseName(),
+            config.getDatabaseUser(),
+            config.getDatabasePassword()
+    ));
+
 
 
     public static StorageFactory getInstance() {
@@ -38,6 +50,13 @@ public class StorageFactory {
      */
     public Storage provide(StorageType type, Configuration config) {
         this.usedStorage = type.createProvider(config);
+        this.usedStorage.setPoolSettings(config.getDatabasePool());
+        this.usedStorage.setWriteBehindSettings(config.getDatabaseWriteBehind());
+        this.usedStorage.setReplicaSettings(config.getDatabaseReplicas());
+        this.usedStorage.setBinaryUUIDs(config.isDatabaseBinaryUUIDs());
+        this.usedStorage.setPlayerCache(new PlayerCache(config.getPlayerCacheSize(),
+                Duration.ofMinutes(config.getPlayerCacheExpiration())));
+        this.asyncStorage = new AsyncStorage(usedStorage, config.getDatabasePool().getMaximumPoolSize());
         return this.usedStorage;
     }
 
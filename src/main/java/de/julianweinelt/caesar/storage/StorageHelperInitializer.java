@@ -23,6 +23,7 @@ public class StorageHelperInitializer {
             "caesar.admin.role.view",
             "caesar.admin.role.list",
             "caesar.admin.change-config",
+            "caesar.admin.storage.metrics",
             "caesar.admin.discord.manage",
             "caesar.view.server",
             "caesar.view.server.services",
@@ -50,6 +51,8 @@ public class StorageHelperInitializer {
             "caesar.players.edit",
             "caesar.players.delete",
             "caesar.players.view",
+            "caesar.players.export",
+            "caesar.players.import",
             "caesar.players.notes.view",
             "caesar.players.notes.create",
             "caesar.players.notes.delete",
@@ -0,0 +1,240 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.gson.JsonObject;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Records call counts, error counts and latency histograms for the operations of a {@link Storage} provider.<br>
+ * Operations are timed by the provider with an explicit name, see {@link #time(String, Supplier)}, so synchronous
+ * calls and calls through {@link AsyncStorage} are recorded alike. The time includes waiting for a pooled connection
+ * as well as cache hits. A call counts as failed if it threw or if one of the statements it executed threw
+ * a {@link SQLException}.<br>
+ * Connection acquisitions are recorded separately as {@link #ACQUIRE}, including failed acquisitions and calls
+ * rejected by the {@link ConnectionCircuitBreaker}.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class StorageMetrics {
+    public static final String ACQUIRE = "connection.acquire";
+    public static final String ACQUIRE_REPLICA = "connection.acquireReplica";
+
+    private static final long[] BUCKETS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Timer> operations = new ConcurrentHashMap<>();
+    private final Map<String, Timer> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * Executes and times a storage operation. Nested operations are recorded on their own, and their failures
+     * also count for the enclosing operation.
+     * @param operation The name the operation is recorded as.
+     * @param call The operation to execute.
+     * @return The result of {@code call}.
+     * @param <T> The result type of the operation.
+     */
+    public <T> T time(String operation, Supplier<T> call) {
+        Operation parent = CURRENT.get();
+        Operation current = new Operation();
+        CURRENT.set(current);
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            current.failed = true;
+            throw e;
+        } finally {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+                if (current.failed) parent.failed = true;
+            }
+            record(operations, operation, System.nanoTime() - start, current.failed);
+        }
+    }
+
+    /**
+     * Records a single event that is not timed by {@link #time(String, Supplier)}, like a connection acquisition.
+     * A failure also counts for the operation running on the calling thread.
+     * @param operation The name the event is recorded as.
+     * @param nanos The duration in nanoseconds.
+     * @param failed Whether the event failed.
+     */
+    public void record(String operation, long nanos, boolean failed) {
+        if (failed) markFailed();
+        record(operations, operation, nanos, failed);
+    }
+
+    /**
+     * Executes a call without recording it, failing if it or one of its nested operations failed. This also covers
+     * failed statements the provider has caught.
+     * @param call The call to execute.
+     * @param failure Creates the exception thrown on failure.
+     * @return The result of {@code call}.
+     * @param <T> The result type of the call.
+     */
+    <T> T check(Supplier<T> call, Supplier<? extends RuntimeException> failure) {
+        Operation parent = CURRENT.get();
+        Operation current = new Operation();
+        CURRENT.set(current);
+        T result;
+        try {
+            result = call.get();
+        } finally {
+            if (parent == null) CURRENT.remove();
+            else CURRENT.set(parent);
+        }
+        if (current.failed) throw failure.get();
+        return result;
+    }
+
+    /**
+     * Wraps a borrowed connection, so failing statements are counted for the operation that borrowed it.
+     * @param connection The pooled {@link Connection}.
+     * @return A {@link Connection} reporting failed statements.
+     */
+    Connection tracked(Connection connection) {
+        Operation operation = CURRENT.get();
+        if (operation == null) return connection;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args, operation);
+            if (result instanceof Statement statement) return wrap(statement, (Connection) proxy, operation);
+            return result;
+        });
+    }
+
+    /**
+     * Records the execution of a single statement of a script.
+     * @param sql The executed SQL statement.
+     * @param nanos The execution time in nanoseconds.
+     * @param failed Whether the statement failed.
+     */
+    public void recordScriptStatement(String sql, long nanos, boolean failed) {
+        String key = sql.replaceAll("\\s+", " ").trim();
+        if (key.length() > 80) key = key.substring(0, 80) + "...";
+        record(scripts, key, nanos, failed);
+    }
+
+    /**
+     * Discards all recorded values.
+     */
+    public void reset() {
+        operations.clear();
+        scripts.clear();
+    }
+
+    /**
+     * Creates a snapshot of all recorded values.
+     * @return A {@link JsonObject} containing the metrics per operation and per script statement.
+     */
+    public JsonObject toJson() {
+        JsonObject o = new JsonObject();
+        o.add("operations", toJson(operations));
+        o.add("scripts", toJson(scripts));
+        return o;
+    }
+
+    private JsonObject toJson(Map<String, Timer> timers) {
+        JsonObject o = new JsonObject();
+        new TreeMap<>(timers).forEach((name, timer) -> o.add(name, timer.toJson()));
+        return o;
+    }
+
+    private void record(Map<String, Timer> timers, String key, long nanos, boolean failed) {
+        timers.computeIfAbsent(key, k -> new Timer()).record(nanos, failed);
+    }
+
+    private static void markFailed() {
+        Operation operation = CURRENT.get();
+        if (operation != null) operation.failed = true;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args, Operation operation) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) operation.failed = true;
+            throw e.getCause();
+        }
+    }
+
+    private static Statement wrap(Statement statement, Connection connection, Operation operation) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> method.getName().equals("getConnection") ? connection
+                        : invoke(statement, method, args, operation));
+    }
+
+    private static final class Operation {
+        private volatile boolean failed = false;
+    }
+
+    private static final class Timer {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length + 1);
+
+        void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) errors.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKETS.length && millis > BUCKETS[bucket]) bucket++;
+            buckets.incrementAndGet(bucket);
+        }
+
+        JsonObject toJson() {
+            long count = calls.sum();
+            JsonObject o = new JsonObject();
+            o.addProperty("calls", count);
+            o.addProperty("errors", errors.sum());
+            o.addProperty("avgMillis", count == 0 ? 0 : totalNanos.sum() / count / 1_000_000.0);
+            o.addProperty("maxMillis", maxNanos.get() / 1_000_000.0);
+            o.addProperty("p50Millis", percentile(count, 0.5));
+            o.addProperty("p95Millis", percentile(count, 0.95));
+            o.addProperty("p99Millis", percentile(count, 0.99));
+            JsonObject histogram = new JsonObject();
+            for (int i = 0; i < BUCKETS.length; i++) histogram.addProperty("<=" + BUCKETS[i] + "ms", buckets.get(i));
+            histogram.addProperty(">" + BUCKETS[BUCKETS.length - 1] + "ms", buckets.get(BUCKETS.length));
+            o.add("histogram", histogram);
+            return o;
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of the bucket it falls into.
+         */
+        private long percentile(long count, double percentile) {
+            if (count == 0) return 0;
+            long threshold = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) return BUCKETS[i];
+            }
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.julianweinelt.caesar.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A unit of work bound to a single pooled connection, created by {@link Storage#inTransaction(java.util.function.Function)}.<br>
+ * While a transaction is active, {@link Storage#getConnection()} hands out a shared handle to its connection.
+ * Closing the handle or changing the commit mode has no effect, so provider methods can be used unchanged.
+ * Any statement failing on the handle marks the transaction as rollback-only.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+final class StorageTransaction {
+    private final Connection connection;
+    private final Connection handle;
+    private boolean rollbackOnly = false;
+
+    StorageTransaction(Connection connection) {
+        this.connection = connection;
+        this.handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler());
+    }
+
+    Connection handle() {
+        return handle;
+    }
+
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) rollbackOnly = true;
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close", "commit", "rollback", "setAutoCommit" -> {
+                    return null;
+                }
+                case "isClosed" -> {
+                    return false;
+                }
+                case "getAutoCommit" -> {
+                    return false;
+                }
+            }
+            Object result = StorageTransaction.this.invoke(connection, method, args);
+            if (result instanceof Statement statement) return wrap(statement);
+            return result;
+        }
+    }
+
+    private Statement wrap(Statement statement) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> method.getName().equals("getConnection") ? handle
+                        : StorageTransaction.this.invoke(statement, method, args));
+    }
+}
@@ -0,0 +1,264 @@
+package de.julianweinelt.caesar.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue collecting append-only inserts and writing them as JDBC batches in the background.<br>
+ * A batch is flushed once {@link WriteBehindSettings#getBatchSize()} writes are queued or
+ * {@link WriteBehindSettings#getFlushInterval()} has elapsed since the first queued write.
+ * Writes of the same batch sharing an SQL statement are sent as one JDBC batch inside a single transaction.<br><br>
+ * If a batch fails for a transient reason, like a lost connection, it is retried with a growing backoff. If it still
+ * fails, its writes are executed one by one, so only writes the database rejects are dropped. Writes that still
+ * could not be executed are kept and tried again with the next batch.<br>
+ * If the queue is full, the caller falls back to writing synchronously. Flushes are recorded as
+ * {@code writeBehind.flush} in the {@link StorageMetrics} of the storage.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class WriteBehindQueue {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final ConnectionSource connections;
+    private final WriteBehindSettings settings;
+    private final StorageMetrics metrics;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public WriteBehindQueue(ConnectionSource connections, WriteBehindSettings settings) {
+        this(connections, settings, new StorageMetrics());
+    }
+
+    public WriteBehindQueue(ConnectionSource connections, WriteBehindSettings settings, StorageMetrics metrics) {
+        this.connections = connections;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+        this.writer = new Thread(this::writeLoop, "caesar-db-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the given insert.
+     * @param sql The SQL statement to execute. Placeholders are bound in the order of {@code params}.
+     * @param params The parameters of the statement.
+     */
+    public void enqueue(String sql, Object... params) {
+        PendingWrite write = new PendingWrite(sql, params);
+        if (running) {
+            try {
+                if (queue.offer(write, settings.getOfferTimeout(), TimeUnit.MILLISECONDS)) return;
+                log.warn("Write-behind queue is full. Writing synchronously...");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!write(List.of(write)).isEmpty()) log.error("Failed to write to the database, the write has been lost: {}", sql);
+    }
+
+    /**
+     * Writes all currently queued inserts on the calling thread.
+     * Writes failing for a transient reason are put back into the queue.
+     */
+    public void flush() {
+        List<PendingWrite> batch = new ArrayList<>();
+        List<PendingWrite> failed = new ArrayList<>();
+        while (queue.drainTo(batch, Math.max(1, settings.getBatchSize())) > 0) {
+            failed.addAll(write(batch));
+            batch.clear();
+            if (!failed.isEmpty()) break;
+        }
+        requeue(failed);
+    }
+
+    /**
+     * Stops the background writer and flushes all remaining inserts. Writes queued afterward are executed synchronously.
+     */
+    public void close() {
+        running = false;
+        try {
+            writer.join(settings.getFlushInterval() * 2 + 1000);
+            if (writer.isAlive()) {
+                // Still waiting for the database, stop retrying and put the writes back into the queue
+                writer.interrupt();
+                writer.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!queue.isEmpty()) log.error("Failed to write {} queued writes before closing. They have been lost.", queue.size());
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        long backoff = settings.getRetryBackoff();
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingWrite first = queue.poll(settings.getFlushInterval(), TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getFlushInterval());
+                while (batch.size() < settings.getBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, settings.getBatchSize() - batch.size());
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (batch.isEmpty()) continue;
+
+            List<PendingWrite> failed = write(batch);
+            batch.clear();
+            batch.addAll(failed);
+            if (failed.isEmpty()) {
+                backoff = settings.getRetryBackoff();
+                continue;
+            }
+            // The database is not reachable, keep the writes and wait before trying again
+            log.warn("Keeping {} queued writes until the database is reachable again.", failed.size());
+            if (!running || !sleep(backoff)) break;
+            backoff = Math.min(backoff * 2, settings.getMaxRetryBackoff());
+        }
+        requeue(batch);
+    }
+
+    /**
+     * Writes the given batch, retrying it on transient errors and falling back to writing each row on its own.
+     * @param batch The writes to execute.
+     * @return The writes that could not be executed because of a transient error. Writes rejected by the database
+     * are logged and dropped.
+     */
+    List<PendingWrite> write(List<PendingWrite> batch) {
+        return metrics.time("writeBehind.flush", () -> writeWithRetries(batch));
+    }
+
+    private List<PendingWrite> writeWithRetries(List<PendingWrite> batch) {
+        long backoff = settings.getRetryBackoff();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeBatch(batch);
+                log.debug("Flushed {} queued writes", batch.size());
+                return List.of();
+            } catch (SQLException e) {
+                if (!isTransient(e) || attempt >= settings.getMaxRetries()) {
+                    log.warn("Failed to flush {} queued writes, writing them one by one: {}", batch.size(), e.getMessage());
+                    break;
+                }
+                log.warn("Failed to flush {} queued writes, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                if (!sleep(backoff)) break;
+                backoff = Math.min(backoff * 2, settings.getMaxRetryBackoff());
+            }
+        }
+        return writeSingly(batch);
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws SQLException {
+        Map<String, List<Object[]>> grouped = new LinkedHashMap<>();
+        for (PendingWrite w : batch) grouped.computeIfAbsent(w.sql(), k -> new ArrayList<>()).add(w.params());
+
+        try (Connection conn = connections.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<Object[]>> entry : grouped.entrySet()) {
+                    try (PreparedStatement pS = conn.prepareStatement(entry.getKey())) {
+                        for (Object[] params : entry.getValue()) {
+                            bind(pS, params);
+                            pS.addBatch();
+                        }
+                        pS.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private List<PendingWrite> writeSingly(List<PendingWrite> batch) {
+        List<PendingWrite> failed = new ArrayList<>();
+        for (PendingWrite w : batch) {
+            // Once the database is unreachable, the remaining writes would fail as well
+            if (!failed.isEmpty()) {
+                failed.add(w);
+                continue;
+            }
+            try (Connection conn = connections.getConnection();
+                 PreparedStatement pS = conn.prepareStatement(w.sql())) {
+                bind(pS, w.params());
+                pS.execute();
+            } catch (SQLException e) {
+                if (isTransient(e)) failed.add(w);
+                else log.error("Queued write has been rejected by the database and is dropped: {} ({})", e.getMessage(), w.sql());
+            }
+        }
+        return failed;
+    }
+
+    private void requeue(List<PendingWrite> writes) {
+        int lost = 0;
+        for (PendingWrite w : writes) if (!queue.offer(w)) lost++;
+        if (lost > 0) log.error("Write-behind queue is full, {} writes have been lost.", lost);
+    }
+
+    private static void bind(PreparedStatement pS, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) pS.setObject(i + 1, params[i]);
+    }
+
+    /**
+     * Checks whether an error might go away when the write is tried again, as opposed to the database
+     * rejecting the data itself (SQL states 22, 23 and 42: invalid data, constraint violations and syntax errors).
+     */
+    static boolean isTransient(SQLException e) {
+        if (e instanceof SQLNonTransientException) return e instanceof SQLNonTransientConnectionException;
+        String state = e.getSQLState();
+        return state == null || !(state.startsWith("22") || state.startsWith("23") || state.startsWith("42"));
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Source of the connections the queue writes with, usually {@link Storage#getConnection()}.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    record PendingWrite(String sql, Object[] params) {}
+}
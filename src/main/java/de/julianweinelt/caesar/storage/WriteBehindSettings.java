@@ -0,0 +1,40 @@
+package de.julianweinelt.caesar.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings for the write-behind queue used for append-only inserts like ticket transcripts.<br>
+ * All time values are defined in milliseconds.
+ */
+@Getter
+@Setter
+public class WriteBehindSettings {
+    private boolean enabled = true;
+    /**
+     * Maximum amount of rows written in one JDBC batch.
+     */
+    private int batchSize = 200;
+    /**
+     * Maximum time a queued write waits before the batch is flushed.
+     */
+    private long flushInterval = 500;
+    /**
+     * Maximum amount of queued writes. When the queue is full, callers wait up to {@link #offerTimeout}
+     * and write synchronously afterward.
+     */
+    private int queueCapacity = 10000;
+    private long offerTimeout = 100;
+    /**
+     * How often a batch failing for a transient reason, like a lost connection, is retried before its writes
+     * are tried one by one.
+     */
+    private int maxRetries = 3;
+    /**
+     * Wait time before the first retry. It doubles with every further retry, up to {@link #maxRetryBackoff}.
+     */
+    private long retryBackoff = 500;
+    private long maxRetryBackoff = 30000;
+
+    public WriteBehindSettings() {}
+}
@@ -0,0 +1,98 @@
+package de.julianweinelt.caesar.storage.providers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Embedded, file-based storage using H2 in MySQL compatibility mode.<br>
+ * No database server is needed, which makes it suitable for small single-node networks and for testing.
+ * All queries are shared with {@link MySQLStorageProvider}; the schema is created from the bundled
+ * {@code sql_scripts/h2/schema.sql} on every start.
+ *
+ * @author Julian Weinelt
+ * @version 1.0
+ */
+public class H2StorageProvider extends MySQLStorageProvider {
+    private static final Logger log = LoggerFactory.getLogger(H2StorageProvider.class);
+    private static final String SCHEMA_SCRIPT = "classpath:/sql_scripts/h2/schema.sql";
+
+    private final File folder;
+
+    public H2StorageProvider(String database, String user, String password) {
+        this(new File("data", "database"), database, user, password);
+    }
+
+    /**
+     * Creates an embedded storage keeping its database files in the given folder.
+     * @param folder The folder containing the database files.
+     * @param database The name of the database file.
+     * @param user The username to connect to the database.
+     * @param password The password to connect to the database.
+     */
+    public H2StorageProvider(File folder, String database, String user, String password) {
+        super("localhost", 0, database, user, password);
+        this.folder = folder;
+    }
+
+    @Override
+    protected String getJdbcUrl() {
+        return "jdbc:h2:file:" + new File(folder, getDatabase()).getAbsolutePath()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    @Override
+    protected String getReplicaJdbcUrl(String host) {
+        return null;
+    }
+
+    @Override
+    protected void prepareSchema() throws SQLException {
+        if (folder.mkdirs()) log.debug("Created database folder.");
+        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM '" + SCHEMA_SCRIPT + "'");
+        }
+        log.info("Embedded database schema is up to date.");
+    }
+
+    /**
+     * The bundled schema stores UUIDs as strings, so binary UUIDs are never used for the embedded database.
+     */
+    @Override
+    public boolean isBinaryUUIDs() {
+        return false;
+    }
+
+    @Override
+    public boolean migrateToBinaryUUIDs() {
+        log.info("The embedded database does not support binary UUID columns.");
+        return false;
+    }
+
+    @Override
+    public boolean usesBundledSchema() {
+        return true;
+    }
+
+    @Override
+    public boolean allTablesExist(String[] tables) {
+        String[] normalized = new String[tables.length];
+        for (int i = 0; i < tables.length; i++) normalized[i] = tables[i].toLowerCase(Locale.ROOT);
+        return super.allTablesExist(normalized);
+    }
+}
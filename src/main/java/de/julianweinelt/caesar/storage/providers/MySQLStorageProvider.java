@@ -2,6 +2,7 @@ package de.julianweinelt.caesar.storage.providers;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import de.julianweinelt.caesar.Caesar;
 import de.julianweinelt.caesar.auth.CPermission;
 import de.julianweinelt.caesar.auth.User;
@@ -14,66 +15,239 @@ import de.julianweinelt.caesar.discord.ticket.TicketManager;
 import de.julianweinelt.caesar.discord.ticket.TicketStatus;
 import de.julianweinelt.caesar.discord.ticket.TicketType;
 import de.julianweinelt.caesar.endpoint.MinecraftUUIDFetcher;
+import de.julianweinelt.caesar.exceptions.StorageException;
 import de.julianweinelt.caesar.exceptions.TicketSystemNotUsedException;
 import de.julianweinelt.caesar.plugin.Registry;
 import de.julianweinelt.caesar.plugin.event.Event;
 import de.julianweinelt.caesar.storage.*;
 import de.julianweinelt.caesar.util.DatabaseColorParser;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
-import java.security.SecureRandom;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.Instant;
 import java.util.*;
 import java.util.List;
 
 
 public class MySQLStorageProvider extends Storage {
     private static final Logger log = LoggerFactory.getLogger(MySQLStorageProvider.class);
+    private static final String PLAYER_NUMBER_SEQUENCE = "player_number";
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final String BINARY_UUID_SCRIPT = "/sql_scripts/mysql/binary_uuids.sql";
+
+    private volatile boolean dataLoaded = false;
+    private volatile boolean disconnected = false;
 
     public MySQLStorageProvider(String host, int port, String database, String user, String password) {
         super(host, port, database, user, password);
     }
 
+    /**
+     * Gets the JDBC URL used to open the connection pool.
+     * @return The JDBC URL of the database.
+     */
+    protected String getJdbcUrl() {
+        return createJdbcUrl(getHost() + ":" + getPort());
+    }
+
     @Override
-    public boolean connect() {
-        final String DRIVER = "com.mysql.cj.jdbc.Driver";
+    protected String getReplicaJdbcUrl(String host) {
+        return createJdbcUrl(host);
+    }
+
+    private String createJdbcUrl(String host) {
         final String PARAMETERS = "?useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC";
-        final String URL = "jdbc:mysql://" + getHost() + ":" + getPort() + "/" + getDatabase() + PARAMETERS;
-        final String USER = getUser();
-        final String PASSWORD = getPassword();
+        return "jdbc:mysql://" + host + "/" + getDatabase() + PARAMETERS;
+    }
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    /**
+     * Called right after the connection pool has been opened, before any data is loaded.
+     * The MySQL schema is maintained by migration scripts, only {@link #upgradeSchema()} is run here.
+     * @throws SQLException if the schema could not be prepared.
+     */
+    protected void prepareSchema() throws SQLException {
+        upgradeSchema();
+    }
+
+    /**
+     * Creates the {@code sequences} table player numbers are reserved from and the indexes used for keyset pagination.
+     * Tables that do not exist yet are skipped; they are handled once the version scripts have created them.
+     */
+    @Override
+    public void upgradeSchema() throws SQLException {
+        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS sequences (Name VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                    "NextValue BIGINT NOT NULL)");
+            upgradeCreationDate(conn, "processes", "processes_creation_idx", "CreationDate, ProcessID");
+            upgradeCreationDate(conn, "punishments", "punishments_player_creation_idx", "PlayerID, CreationDate, RecordID");
+            upgradeCreationDate(conn, "players_notes", "players_notes_player_creation_idx", "PlayerID, CreationDate, RecordID");
+            createIndex(conn, "process_player_assignment", "process_player_idx", "PlayerID, ProcessID");
+        }
+    }
+
+    /**
+     * Converts the {@code CreationDate} column of the given table to {@code BIGINT} and indexes it.<br>
+     * The version scripts declare it as {@code long}, which MySQL treats as an alias of {@code MEDIUMTEXT}, so creation
+     * dates were compared as text and could not be indexed. Failures are logged and do not stop the startup,
+     * as pagination still works without the index.
+     */
+    private void upgradeCreationDate(Connection conn, String table, String index, String columns) {
+        try {
+            DatabaseMetaData meta = conn.getMetaData();
+            try (ResultSet set = meta.getColumns(conn.getCatalog(), null, escapePattern(meta, table), "CreationDate")) {
+                if (!set.next()) return;
+                if (!set.getString("TYPE_NAME").equalsIgnoreCase("BIGINT")) {
+                    log.info("Converting creation dates of {} to BIGINT...", table);
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE " + table + " MODIFY CreationDate BIGINT NOT NULL DEFAULT (UNIX_TIMESTAMP())");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to convert creation dates of {}: {}", table, e.getMessage());
+            return;
+        }
+        createIndex(conn, table, index, columns);
+    }
 
+    /**
+     * Creates the given index unless it or the table does not exist. Failures are only logged.
+     */
+    private void createIndex(Connection conn, String table, String index, String columns) {
         try {
-            Class.forName(DRIVER);
+            DatabaseMetaData meta = conn.getMetaData();
+            try (ResultSet tables = meta.getTables(conn.getCatalog(), null, escapePattern(meta, table), new String[]{"TABLE"})) {
+                if (!tables.next()) return;
+            }
+            try (ResultSet indexes = meta.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+                while (indexes.next()) if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) return;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+            }
+            log.info("Created index {} on {}.", index, table);
+        } catch (SQLException e) {
+            log.error("Failed to create index {} on {}: {}", index, table, e.getMessage());
+        }
+    }
 
-            conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            log.info("Connected to MySQL database: {}", URL);
-            conn.createStatement().execute("USE " + getDatabase());
+    /**
+     * Escapes the wildcards of a table name used as pattern in {@link DatabaseMetaData} lookups.
+     */
+    private static String escapePattern(DatabaseMetaData meta, String name) throws SQLException {
+        String escape = meta.getSearchStringEscape();
+        return name.replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    /**
+     * Converts all UUID columns from {@code VARCHAR(36)} to {@code BINARY(16)} and switches this storage
+     * to binary UUIDs afterward.<br>
+     * Requires MySQL 8.0 or newer. No other operations should run while the migration is in progress,
+     * so this should only be triggered manually.
+     * @return True if the migration was successful, false otherwise.
+     */
+    public boolean migrateToBinaryUUIDs() {
+        if (isBinaryUUIDs()) {
+            log.info("UUID columns are already stored in binary format.");
+            return true;
+        }
+        flushPendingWrites();
+        String script;
+        try (InputStream in = MySQLStorageProvider.class.getResourceAsStream(BINARY_UUID_SCRIPT)) {
+            if (in == null) {
+                log.error("Migration script {} could not be found.", BINARY_UUID_SCRIPT);
+                return false;
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Failed to read migration script: {}", e.getMessage());
+            return false;
+        }
+        log.info("Converting UUID columns to BINARY(16). This may take a while...");
+        if (!executeScript(script)) {
+            log.error("UUID migration failed. Please restore your backup before starting Caesar again.");
+            return false;
+        }
+        setBinaryUUIDs(true);
+        getPlayerCache().invalidateAll();
+        log.info("UUID columns have been converted successfully.");
+        return true;
+    }
+
+    @Override
+    public boolean connect() {
+        disconnected = false;
+        return openConnection() && loadData();
+    }
+
+    /**
+     * Opens the connection pool and prepares the schema, without loading any data.
+     * @return True if the connection was successful, false otherwise.
+     */
+    boolean openConnection() {
+        final String URL = getJdbcUrl();
+        try {
+            openPool(URL, getDriverClassName());
+            log.info("Connected to database: {}", URL);
+            prepareSchema();
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to connect to database: {}", e.getMessage());
+            closePool();
+            return false;
+        }
+    }
 
+    /**
+     * Loads permissions and roles into memory and starts loading all users in the background.
+     * Only needed once after startup.
+     * @return True if the data was loaded successfully, false otherwise.
+     */
+    private boolean loadData() {
+        try {
             Caesar.getInstance().setDbVersionManager(new DatabaseVersionManager());
 
             if (!systemDataExist()) insertDefaultData();
-            log.info("Loading data into memory... This may take a while. Please wait...");
             UserManager.getInstance().getAllPermissions();
             UserManager.getInstance().getAllRoles();
-            UserManager.getInstance().overrideUsers(getAllUsers());
+            UserManager.getInstance().startWarmUp();
 
             executeAfterConnection();
+            dataLoaded = true;
             return true;
         } catch (Exception e) {
-            log.error("Failed to connect to MySQL database: {}", e.getMessage());
+            log.error("Failed to load data from database: {}", e.getMessage());
             e.printStackTrace();
         }
         return false;
     }
 
-
+    /**
+     * Re-opens the connection pool. Data is only loaded if it has never been loaded successfully before.
+     */
+    @Override
+    protected boolean reconnect() {
+        if (disconnected || !openConnection()) return false;
+        return dataLoaded || loadData();
+    }
 
     @Override
     public boolean allTablesExist(String[] tables) {
         if (!checkConnection()) return false;
-        try {
+        try (Connection conn = getConnection()) {
             DatabaseMetaData meta = conn.getMetaData();
             for (String table : tables) {
                 try (ResultSet rs = meta.getTables(null, null, table, new String[]{"TABLE"})) {
@@ -92,19 +266,27 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public boolean systemDataExist() {
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM permissions");
-            ResultSet set = pS.executeQuery();
-            int i = 0;
-            while (set.next()) i++;
-            log.info("Found {} permissions in database. System permissions: {}", i, StorageHelperInitializer.PERMISSIONS.length);
-            return i == StorageHelperInitializer.PERMISSIONS.length;
+        try (Connection conn = getConnection()) {
+            Set<String> existing = getPermissionKeys(conn);
+            int missing = StorageHelperInitializer.PERMISSIONS.length;
+            for (String p : StorageHelperInitializer.PERMISSIONS) if (existing.contains(p)) missing--;
+            log.info("Found {} permissions in database. Missing system permissions: {}", existing.size(), missing);
+            return missing == 0;
         } catch (SQLException e) {
             log.error("Failed to check system storage data: {}", e.getMessage());
             return false;
         }
     }
 
+    private Set<String> getPermissionKeys(Connection conn) throws SQLException {
+        Set<String> keys = new HashSet<>();
+        try (PreparedStatement pS = conn.prepareStatement("SELECT PermissionKey FROM permissions")) {
+            ResultSet set = pS.executeQuery();
+            while (set.next()) keys.add(set.getString(1));
+        }
+        return keys;
+    }
+
     @Override
     public void executeAfterConnection() {
         if (!LocalStorage.getInstance().getData().isUseDiscord()) return;
@@ -112,10 +294,10 @@ public class MySQLStorageProvider extends Storage {
             TicketManager.execute(manager ->
                     manager.startUp(getAllTicketStatuses(), getAllTicketTypes()));
             DiscordBot.getInstance().getCaesarUserChannels().clear();
-            try (PreparedStatement pS = conn.prepareStatement("SELECT UserID, DiscordID FROM discord_user_mappings")) {
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("SELECT UserID, DiscordID FROM discord_user_mappings")) {
                 ResultSet rs = pS.executeQuery();
                 while (rs.next()) {
-                    DiscordBot.getInstance().getCaesarUserChannels().put(UUID.fromString(rs.getString(1)), rs.getString(2));
+                    DiscordBot.getInstance().getCaesarUserChannels().put(getUUID(rs, 1), rs.getString(2));
                 }
             } catch (SQLException e) {
                 log.error("Failed to get linked discord accounts: {}", e.getMessage());
@@ -125,25 +307,17 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public void disconnect() {
-        try {
-            conn.close();
-        } catch (SQLException e) {
-            log.error("Failed to disconnect from MySQL database: {}", e.getMessage());
-        }
+        disconnected = true;
+        closePool();
     }
 
     @Override
     public boolean checkConnection() {
-        try {
-            if (conn == null || conn.isClosed()) {
-                connect();
-                return false;
-            }
-            return true;
-        } catch (SQLException e) {
-            log.error("Failed to check connection: {}", e.getMessage());
+        if (!isPoolOpen()) {
+            if (!disconnected) scheduleReconnect();
             return false;
         }
+        return !getCircuitBreaker().isOpen();
     }
 
     @Override
@@ -151,24 +325,34 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public void insertDefaultData() {
-        try {
-            log.info("Creating default permission data...");
-            PreparedStatement permissionPS = conn.prepareStatement("INSERT IGNORE INTO permissions " +
-                    "(UUID, NameKey, PermissionKey, DefaultGranted) VALUES (?, ?, ?, ?)");
+        try (Connection conn = getConnection();
+             PreparedStatement permissionPS = conn.prepareStatement("INSERT IGNORE INTO permissions " +
+                     "(UUID, NameKey, PermissionKey, DefaultGranted) VALUES (?, ?, ?, ?)");
+             PreparedStatement ticketStatusPS = conn.prepareStatement("INSERT IGNORE INTO ticket_status_names " +
+                     "(UUID, StatusName, Color, Description) VALUES (?, ?, ?, ?)");
+             PreparedStatement rolesExistPS = conn.prepareStatement("SELECT 1 FROM roles LIMIT 1");
+             PreparedStatement pSRoles = conn.prepareStatement("INSERT IGNORE INTO roles (UUID, NameKey, DisplayColor)" +
+                     " VALUES (?, ?, ?)")) {
+            // Only insert permissions added since the last start, existing ones keep their IDs
+            Set<String> existing = getPermissionKeys(conn);
+            int missing = 0;
             for (String p : StorageHelperInitializer.PERMISSIONS) {
-                permissionPS.setString(1, UUID.randomUUID().toString());
+                if (existing.contains(p)) continue;
+                setUUID(permissionPS, 1, UUID.randomUUID());
                 permissionPS.setString(2, "permissions." + p);
                 permissionPS.setString(3, p);
                 permissionPS.setBoolean(4, false);
                 permissionPS.addBatch();
+                missing++;
+            }
+            if (missing > 0) {
+                log.info("Creating {} missing permissions...", missing);
+                permissionPS.executeBatch();
             }
-            permissionPS.executeBatch();
 
             log.info("Creating default ticket status names...");
-            PreparedStatement ticketStatusPS = conn.prepareStatement("INSERT IGNORE INTO ticket_status_names " +
-                    "(UUID, StatusName, Color, Description) VALUES (?, ?, ?, ?)");
             for (TicketStatus s : StorageHelperInitializer.getDefaultTicketStatusList()) {
-                ticketStatusPS.setString(1, s.uniqueID().toString());
+                setUUID(ticketStatusPS, 1, s.uniqueID());
                 ticketStatusPS.setString(2, s.statusName());
                 ticketStatusPS.setString(3, DatabaseColorParser.parseColor(s.statusColor()));
                 ticketStatusPS.setString(4, s.statusDescription());
@@ -176,17 +360,17 @@ public class MySQLStorageProvider extends Storage {
             }
             ticketStatusPS.executeBatch();
 
-
+            // Role names are not unique, so the default roles are only created on a fresh install
+            if (rolesExistPS.executeQuery().next()) return;
             log.info("Creating default user roles...");
-            PreparedStatement pSRoles = conn.prepareStatement("INSERT IGNORE INTO roles (UUID, NameKey, DisplayColor)" +
-                    " VALUES (?, ?, ?)");
-            pSRoles.setString(1, UUID.randomUUID().toString());
+            setUUID(pSRoles, 1, UUID.randomUUID());
             pSRoles.setString(2, "admin");
             pSRoles.setString(3, DatabaseColorParser.parseColor(new Color(71, 130, 195,100)));
             pSRoles.addBatch();
-            pSRoles.setString(1, UUID.randomUUID().toString());
+            setUUID(pSRoles, 1, UUID.randomUUID());
             pSRoles.setString(2, "user");
             pSRoles.setString(3, DatabaseColorParser.parseColor(new Color(255, 255, 255,100)));
+            pSRoles.addBatch();
             pSRoles.executeBatch();
         } catch (SQLException e) {
             log.error("Failed to insert default data: {}", e.getMessage());
@@ -195,8 +379,7 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public boolean hasTables() {
-        try {
-            Statement statement = conn.createStatement();
+        try (Connection conn = getConnection(); Statement statement = conn.createStatement()) {
             ResultSet set = statement.executeQuery("SHOW TABLES;");
             int tables = 0;
             while (set.next()) tables++;
@@ -207,521 +390,631 @@ public class MySQLStorageProvider extends Storage {
     }
 
     @Override
-    public User getUser(String username) {
-        if (!checkConnection()) return null;
-        
-        User user = null;
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM users WHERE Username = ?");
-            pS.setString(1, username);
-            ResultSet set = pS.executeQuery();
-            if (set.next()) {
-                user =  new User(UUID.fromString(set.getString(1)));
-                user.setUsername(username);
-                user.setActive(set.getBoolean("Active"));
-                user.setNewlyCreated(set.getBoolean("NewlyCreated"));
-                user.setPassword(set.getInt("PasswordHashed"));
-            }
-        } catch (SQLException e) {
-            log.error("Failed to get user: {}", e.getMessage());
-        }
-        if (user == null) return null;
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM user_permissions WHERE UserID = ?");
-            pS.setString(1, user.getUuid().toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                CPermission p = UserManager.getInstance().getPermission(UUID.fromString(set.getString(2)));
-                if (p != null) user.addPermission(p.permissionKey());
+    public Optional<User> getUser(String username) {
+        return timed("getUser", () -> {
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+
+            User user = null;
+            try (Connection conn = getConnection()) {
+                try (PreparedStatement pS = conn.prepareStatement("SELECT * FROM users WHERE Username = ?")) {
+                    pS.setString(1, username);
+                    ResultSet set = pS.executeQuery();
+                    if (set.next()) {
+                        user =  new User(getUUID(set, 1));
+                        user.setUsername(username);
+                        user.setActive(set.getBoolean("Active"));
+                        user.setNewlyCreated(set.getBoolean("NewlyCreated"));
+                        user.setApplyPasswordPolicy(set.getBoolean("ApplyPasswordPolicy"));
+                        user.setPassword(set.getInt("PasswordHashed"));
+                    }
+                }
+                if (user == null) return Optional.empty();
+                try (PreparedStatement pS = conn.prepareStatement("SELECT * FROM user_permissions WHERE UserID = ?")) {
+                    setUUID(pS, 1, user.getUuid());
+                    ResultSet set = pS.executeQuery();
+                    while (set.next()) {
+                        CPermission p = UserManager.getInstance().getPermission(getUUID(set, 2));
+                        if (p != null) user.addPermission(p.permissionKey());
+                    }
+                }
+                try (PreparedStatement pS = conn.prepareStatement("SELECT * FROM user_roles WHERE UserID = ?")) {
+                    setUUID(pS, 1, user.getUuid());
+                    ResultSet set = pS.executeQuery();
+                    while (set.next()) {
+                        UserRole r = UserManager.getInstance().getRole(getUUID(set, 2));
+                        if (r != null) user.addRole(r);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new StorageException("Failed to get user " + username, e);
             }
-        } catch (SQLException e) {
-            log.error("Failed to get user permissions: {}", e.getMessage());
-        }
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM user_roles WHERE UserID = ?");
-            pS.setString(1, user.getUuid().toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                UserRole r = UserManager.getInstance().getRole(UUID.fromString(set.getString(2)));
-                if (r != null) user.addRole(r);
+            log.debug("Loaded {} permissions in total for user {}", user.getPermissions().size(), username);
+            user.markPersisted();
+            return Optional.of(user);
+        });
+    }
+
+    @Override
+    public Optional<User> getUser(UUID uuid) {
+        return timed("getUserByID", () -> {
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+            String username = null;
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT Username FROM users WHERE UUID = ?")) {
+                setUUID(pS, 1, uuid);
+                ResultSet set = pS.executeQuery();
+                if (set.next()) username = set.getString(1);
+            } catch (SQLException e) {
+                throw new StorageException("Failed to get user by ID " + uuid, e);
             }
-        } catch (SQLException e) {
-            log.error("Failed to get user roles: {}", e.getMessage());
-        }
-        log.info("Loaded {} permissions in total for user {}", user.getPermissions().size(), username);
-        return user;
+            return username == null ? Optional.empty() : getUser(username);
+        });
     }
 
     @Override
     public void deleteUser(String username) {
-        User user = UserManager.getInstance().getUser(username);
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM users WHERE Username = ?");
-
-            pS.setString(1, username);
-            pS.execute();
-            log.info("Deleted user: {}. Performing clean-up now...", username);
-        } catch (SQLException e) {
-            log.error("Failed to delete user: {}", e.getMessage());
-            return;
-        }
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM user_roles WHERE UserID = ?");
-            pS.setString(1, user.getUuid().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete user roles: {}", e.getMessage());
-            return;
-        }
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM user_permissions WHERE UserID = ?");
-            pS.setString(1, user.getUuid().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete user permissions: {}", e.getMessage());
-            return;
-        }
-        log.info("Clean-up finished. User {} and all references deleted.", username);
+        timed("deleteUser", () -> {
+            User user = UserManager.getInstance().getUser(username);
+            if (user == null) return;
+            String[] statements = {
+                    "DELETE FROM user_roles WHERE UserID = ?",
+                    "DELETE FROM user_permissions WHERE UserID = ?",
+                    "DELETE FROM discord_user_mappings WHERE UserID = ?",
+                    "DELETE FROM users WHERE UUID = ?"
+            };
+            boolean deleted = runInTransaction(s -> {
+                try (Connection conn = getConnection()) {
+                    for (String sql : statements) {
+                        try (PreparedStatement pS = conn.prepareStatement(sql)) {
+                            setUUID(pS, 1, user.getUuid());
+                            pS.execute();
+                        }
+                    }
+                } catch (SQLException e) {
+                    log.error("Failed to delete user {}: {}", username, e.getMessage());
+                }
+            });
+            if (deleted) log.info("Deleted user: {} and all references.", username);
+        });
     }
 
+    /**
+     * Saves the changes of the given user. Only the columns, permissions and roles that differ from the
+     * last persisted state of the user are written, all inside a single transaction.<br>
+     * If the persisted state is unknown, all values are written and the permission and role sets are replaced.
+     * @param user The {@link User} to update.
+     */
     @Override
     public void updateUser(User user) {
-        log.debug("Received command to update user. Loading from database.");
-        User existing = getUser(user.getUsername());
+        timed("updateUser", () -> {
+            User.PersistedState before = user.getPersistedState();
+            User.PersistedState after = user.snapshot();
+            if (after.equals(before)) {
+                log.debug("No changes to persist for user {}.", user.getUsername());
+                return;
+            }
 
-        StringBuilder sql = new StringBuilder("UPDATE users SET ");
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    updateUserColumns(conn, user.getUuid(), before, after);
+                    updateUserPermissions(conn, user.getUuid(), before, after);
+                    updateUserRoles(conn, user.getUuid(), before, after);
+                    conn.commit();
+                    user.markPersisted(after);
+                    log.debug("User {} and all references updated.", user.getUsername());
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to update user: {}", e.getMessage());
+            }
+        });
+    }
 
+    private void updateUserColumns(Connection conn, UUID uuid, User.@Nullable PersistedState before,
+                                   User.PersistedState after) throws SQLException {
         List<String> fields = new ArrayList<>();
         List<Object> values = new ArrayList<>();
 
-        if (!Objects.equals(user.getUsername(), existing.getUsername())) {
+        if (before == null || !Objects.equals(after.username(), before.username())) {
             fields.add("Username = ?");
-            values.add(user.getUsername());
+            values.add(after.username());
         }
-
-        if (!Objects.equals(user.getPassword(), existing.getPassword())) {
+        if (before == null || after.password() != before.password()) {
             fields.add("PasswordHashed = ?");
-            values.add(user.getPassword());
+            values.add(after.password());
         }
-
-        if (!Objects.equals(user.isActive(), existing.isActive())) {
+        if (before == null || after.active() != before.active()) {
             fields.add("Active = ?");
-            values.add(user.isActive());
+            values.add(after.active());
         }
-
-        if (!Objects.equals(user.isNewlyCreated(), existing.isNewlyCreated())) {
+        if (before == null || after.newlyCreated() != before.newlyCreated()) {
             fields.add("NewlyCreated = ?");
-            values.add(user.isNewlyCreated());
+            values.add(after.newlyCreated());
         }
-
-        if (!Objects.equals(user.isApplyPasswordPolicy(), existing.isApplyPasswordPolicy())) {
+        if (before == null || after.applyPasswordPolicy() != before.applyPasswordPolicy()) {
             fields.add("ApplyPasswordPolicy = ?");
-            values.add(user.isApplyPasswordPolicy());
+            values.add(after.applyPasswordPolicy());
         }
+        if (fields.isEmpty()) return;
 
-        if (!fields.isEmpty()) {
-            sql.append(String.join(", ", fields));
-            sql.append(" WHERE UUID = ?");
-            values.add(user.getUuid().toString());
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-                for (int i = 0; i < values.size(); i++) {
-                    stmt.setObject(i + 1, values.get(i));
-                }
+        values.add(uuidParam(uuid));
+        try (PreparedStatement pS = conn.prepareStatement("UPDATE users SET " + String.join(", ", fields) +
+                " WHERE UUID = ?")) {
+            for (int i = 0; i < values.size(); i++) pS.setObject(i + 1, values.get(i));
+            pS.executeUpdate();
+        }
+    }
 
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                log.error("Failed to update user: {}", e.getMessage());
+    private void updateUserPermissions(Connection conn, UUID uuid, User.@Nullable PersistedState before,
+                                       User.PersistedState after) throws SQLException {
+        Set<String> added = new HashSet<>(after.permissions());
+        Set<String> removed = new HashSet<>();
+        if (before == null) {
+            try (PreparedStatement pS = conn.prepareStatement("DELETE FROM user_permissions WHERE UserID = ?")) {
+                setUUID(pS, 1, uuid);
+                pS.execute();
             }
-        }
+        } else {
+            added.removeAll(before.permissions());
+            removed.addAll(before.permissions());
+            removed.removeAll(after.permissions());
+        }
+        if (added.isEmpty() && removed.isEmpty()) return;
+        log.debug("Persisting permission changes: {} added, {} removed.", added.size(), removed.size());
+
+        applyUserPermissions(conn, "INSERT IGNORE INTO user_permissions (UserID, PermissionID) VALUES (?, ?)",
+                uuid, added);
+        applyUserPermissions(conn, "DELETE FROM user_permissions WHERE UserID = ? AND PermissionID = ?",
+                uuid, removed);
+    }
 
-        log.debug("Updating user permissions. User {} and all references updated.", user.getUsername());
-        log.debug("Updating {} permissions.", user.getPermissions().size());
+    private void applyUserPermissions(Connection conn, String sql, UUID uuid, Set<String> permissions)
+            throws SQLException {
+        if (permissions.isEmpty()) return;
         int skipped = 0;
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM user_permissions WHERE UserID = ?");
-            pS.setString(1, user.getUuid().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to reset user permissions: {}", e.getMessage());
-        }
-        try {
-            conn.setAutoCommit(false);
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO user_permissions " +
-                    "(UserID, PermissionID) VALUES (?, ?)");
-            for (String perm : user.getPermissions()) {
+        try (PreparedStatement pS = conn.prepareStatement(sql)) {
+            for (String perm : permissions) {
                 CPermission permission = UserManager.getInstance().getPermission(perm);
                 if (permission == null) {
                     skipped++;
                     continue;
                 }
-                pS.setString(1, user.getUuid().toString());
-                pS.setString(2, permission.uniqueID().toString());
+                setUUID(pS, 1, uuid);
+                setUUID(pS, 2, permission.uniqueID());
                 pS.addBatch();
             }
-            int[] result = pS.executeBatch();
-            conn.commit();
-            int rI = 0;
-            for (int j : result) rI += j;
-            log.debug("Updated {} rows.", rI);
-        } catch (SQLException e) {
-            log.error("Failed to update user permissions: {}", e.getMessage());
+            pS.executeBatch();
         }
-        if (skipped > 0) log.warn("Skipped {} user permissions.", skipped);
-        try {
-            conn.setAutoCommit(false);
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO user_roles (UserID, RoleID) VALUES (?, ?)");
-            for (UserRole role : user.getRoles()) {
-                pS.setString(1, user.getUuid().toString());
-                pS.setString(2, role.getUniqueID().toString());
+        if (skipped > 0) log.warn("Skipped {} unknown user permissions.", skipped);
+    }
+
+    private void updateUserRoles(Connection conn, UUID uuid, User.@Nullable PersistedState before,
+                                 User.PersistedState after) throws SQLException {
+        Set<UUID> added = new HashSet<>(after.roles());
+        Set<UUID> removed = new HashSet<>();
+        if (before == null) {
+            try (PreparedStatement pS = conn.prepareStatement("DELETE FROM user_roles WHERE UserID = ?")) {
+                setUUID(pS, 1, uuid);
+                pS.execute();
+            }
+        } else {
+            added.removeAll(before.roles());
+            removed.addAll(before.roles());
+            removed.removeAll(after.roles());
+        }
+        applyUserRoles(conn, "INSERT IGNORE INTO user_roles (UserID, RoleID) VALUES (?, ?)", uuid, added);
+        applyUserRoles(conn, "DELETE FROM user_roles WHERE UserID = ? AND RoleID = ?", uuid, removed);
+    }
+
+    private void applyUserRoles(Connection conn, String sql, UUID uuid, Set<UUID> roles) throws SQLException {
+        if (roles.isEmpty()) return;
+        try (PreparedStatement pS = conn.prepareStatement(sql)) {
+            for (UUID role : roles) {
+                setUUID(pS, 1, uuid);
+                setUUID(pS, 2, role);
                 pS.addBatch();
             }
             pS.executeBatch();
-            conn.commit();
-        } catch (SQLException e) {
-            log.error("Failed to update user roles: {}", e.getMessage());
         }
     }
 
     @Override
     public void createUser(User user) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO users (UUID, Username, PasswordHashed, " +
-                    "CreationDate) VALUES (?, ?, ?, CURRENT_TIMESTAMP)");
-            pS.setString(1, user.getUuid().toString());
-            pS.setString(2, user.getUsername());
-            pS.setInt(3, user.getPassword());
-            int result = pS.executeUpdate();
-            if (result == 0) {
-                log.error("Failed to create user (db): {}", user.getUsername());
-            } else log.info("Created user: {}", user.getUsername());
-        } catch (SQLException e) {
-            log.error("Failed to create user: {}", e.getMessage());
-        }
+        timed("createUser", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO users (UUID, Username, PasswordHashed, " +
+                        "CreationDate) VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+                setUUID(pS, 1, user.getUuid());
+                pS.setString(2, user.getUsername());
+                pS.setInt(3, user.getPassword());
+                int result = pS.executeUpdate();
+                if (result == 0) {
+                    log.error("Failed to create user (db): {}", user.getUsername());
+                } else log.info("Created user: {}", user.getUsername());
+            } catch (SQLException e) {
+                log.error("Failed to create user: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public List<User> getAllUsers() {
-        List<User> users = new ArrayList<>();
-        try {
-            ResultSet set = conn.createStatement().executeQuery("SELECT Username FROM users");
-            while (set.next()) {
-                users.add(getUser(set.getString(1)));
+        return timed("getAllUsers", () -> {
+            Map<UUID, User> loaded = new LinkedHashMap<>();
+            Map<UUID, UserRole> roles = new HashMap<>();
+            for (UserRole role : UserManager.getInstance().getUserRoles()) roles.put(role.getUniqueID(), role);
+
+            try (Connection conn = getConnection(); Statement statement = conn.createStatement()) {
+                try (ResultSet set = statement.executeQuery("SELECT UUID, Username, PasswordHashed, Active, " +
+                        "NewlyCreated, ApplyPasswordPolicy FROM users")) {
+                    while (set.next()) {
+                        User user = new User(getUUID(set, 1));
+                        user.setUsername(set.getString(2));
+                        user.setPassword(set.getInt(3));
+                        user.setActive(set.getBoolean(4));
+                        user.setNewlyCreated(set.getBoolean(5));
+                        user.setApplyPasswordPolicy(set.getBoolean(6));
+                        loaded.put(user.getUuid(), user);
+                    }
+                }
+                try (ResultSet set = statement.executeQuery("SELECT up.UserID, p.PermissionKey FROM user_permissions AS up " +
+                        "JOIN permissions AS p ON up.PermissionID = p.UUID")) {
+                    while (set.next()) {
+                        User user = loaded.get(getUUID(set, 1));
+                        if (user != null) user.addPermission(set.getString(2));
+                    }
+                }
+                try (ResultSet set = statement.executeQuery("SELECT UserID, RoleID FROM user_roles")) {
+                    while (set.next()) {
+                        User user = loaded.get(getUUID(set, 1));
+                        UserRole role = roles.get(getUUID(set, 2));
+                        if (user != null && role != null) user.addRole(role);
+                    }
+                }
+            } catch (SQLException e) {
+                // A partial list would look like deleted users, so the caller has to try again
+                throw new StorageException("Failed to get all users", e);
+            }
+            List<User> users = new ArrayList<>(loaded.values());
+            for (User user : users) user.markPersisted();
+            log.info("Loaded {} users from database.", users.size());
+
+            if (users.isEmpty()) {
+                log.warn("No users found in database!");
+                log.warn("That doesn't look correct. We will create a default user for you...");
+                UserManager.getInstance().createUser("admin", "admin");
             }
-        } catch (SQLException e) {
-            log.error("Failed to get all users: {}", e.getMessage());
-        }
-
-        if (users.isEmpty()) {
-            log.warn("No users found in database!");
-            log.warn("That doesn't look correct. We will create a default user for you...");
-            UserManager.getInstance().createUser("admin", "admin");
-        }
 
-        return users;
+            return users;
+        });
     }
 
     @Override
     public void addRole(UserRole role) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO roles (UUID, NameKey, DisplayColor, " +
-                    "CreationDate) VALUES (?, ?, ?, CURRENT_TIMESTAMP)");
-            pS.setString(1, UUID.randomUUID().toString());
-            pS.setString(2, role.getName());
-            pS.setString(3, role.getColor());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to add role: {}", e.getMessage());
-        }
+        timed("addRole", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO roles (UUID, NameKey, DisplayColor, " +
+                        "CreationDate) VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+                setUUID(pS, 1, UUID.randomUUID());
+                pS.setString(2, role.getName());
+                pS.setString(3, role.getColor());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to add role: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void removeRole(UserRole role) {
+        timed("removeRole", () -> {
 
+        });
     }
 
     @Override
     public List<UserRole> getAllRoles() {
-        List<UserRole> roles = new ArrayList<>();
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM roles");
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                UserRole role = new UserRole(set.getString(2), set.getString(3),
-                        UUID.fromString(set.getString(1)));
-                PreparedStatement p = conn.prepareStatement("SELECT PermissionID FROM role_permissions WHERE RoleID = ?");
-                p.setString(1, role.getUniqueID().toString());
-                ResultSet s = p.executeQuery();
-                while (s.next()) {
-                    role.addPermission(
-                            UserManager.getInstance().getPermission(UUID.fromString(s.getString(1)))
-                                    .permissionKey()
-                    );
+        return timed("getAllRoles", () -> {
+            Map<UUID, UserRole> roles = new LinkedHashMap<>();
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT r.UUID, r.NameKey, r.DisplayColor, p.PermissionKey " +
+                         "FROM roles AS r LEFT OUTER JOIN role_permissions AS rp ON r.UUID = rp.RoleID " +
+                         "LEFT OUTER JOIN permissions AS p ON rp.PermissionID = p.UUID")) {
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    UUID roleID = getUUID(set, 1);
+                    UserRole role = roles.get(roleID);
+                    if (role == null) {
+                        role = new UserRole(set.getString(2), set.getString(3), roleID);
+                        roles.put(roleID, role);
+                    }
+                    String permission = set.getString(4);
+                    if (permission != null) role.addPermission(permission);
                 }
-                s.close();
-                p.close();
-                roles.add(role);
+            } catch (SQLException e) {
+                log.error("Failed to get all roles: {}", e.getMessage());
             }
-            set.close();
-            pS.close();
-        } catch (SQLException e) {
-            log.error("Failed to get all roles: {}", e.getMessage());
-        }
-        return roles;
+            return new ArrayList<>(roles.values());
+        });
     }
 
     @Override
     public void updateRolePermissions(UserRole role) {
-        try {
-            conn.setAutoCommit(false);
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO role_permissions (RoleID, PermissionID) " +
-                    "VALUES (?, ?) ON DUPLICATE KEY UPDATE PermissionID = PermissionID");
-            for (String p : role.getPermissions()) {
-                UUID u = UserManager.getInstance().getPermissionID(p);
-                pS.setString(1, u.toString());
-                pS.setString(2, role.getUniqueID().toString());
-                pS.addBatch();
+        timed("updateRolePermissions", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO role_permissions (RoleID, PermissionID) " +
+                         "VALUES (?, ?) ON DUPLICATE KEY UPDATE PermissionID = PermissionID")) {
+                conn.setAutoCommit(false);
+                for (String p : role.getPermissions()) {
+                    UUID u = UserManager.getInstance().getPermissionID(p);
+                    setUUID(pS, 1, role.getUniqueID());
+                    setUUID(pS, 2, u);
+                    pS.addBatch();
+                }
+                pS.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                log.error("Failed to update role permissions: {}", e.getMessage());
             }
-            pS.executeBatch();
-        } catch (SQLException e) {
-            log.error("Failed to update role permissions: {}", e.getMessage());
-        }
+        });
     }
 
     @Override
     public List<CPermission> getAllPermissions() {
-        List<CPermission> permissions = new ArrayList<>();
-        try {
-            ResultSet set = conn.createStatement().executeQuery("SELECT * FROM permissions");
-            while (set.next()) {
-                CPermission p = new CPermission(UUID.fromString(set.getString(1)),
-                        set.getString(3));
-                permissions.add(p);
+        return timed("getAllPermissions", () -> {
+            List<CPermission> permissions = new ArrayList<>();
+            try (Connection conn = getConnection(); Statement statement = conn.createStatement()) {
+                ResultSet set = statement.executeQuery("SELECT * FROM permissions");
+                while (set.next()) {
+                    CPermission p = new CPermission(getUUID(set, 1),
+                            set.getString(3));
+                    permissions.add(p);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to get all permissions: {}", e.getMessage());
             }
-        } catch (SQLException e) {
-            log.error("Failed to get all permissions: {}", e.getMessage());
-        }
-        return permissions;
+            return permissions;
+        });
     }
 
     @Override
     public Ticket getTicket(UUID id) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT UUID, CreatedBy, HandledBy, CreationDate," +
-                    " TicketStatus, TicketType, ChannelID" +
-                    " FROM tickets WHERE UUID = ?");
+        return timed("getTicket", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT UUID, CreatedBy, HandledBy, CreationDate," +
+                        " TicketStatus, TicketType, ChannelID" +
+                        " FROM tickets WHERE UUID = ?")) {
 
-            pS.setString(1, id.toString());
+                setUUID(pS, 1, id);
 
-            ResultSet set = pS.executeQuery();
-            if (set.next()) {
-                TicketStatus status;
-                TicketType type;
-                status = TicketManager.getInstance().getTicketStatus(UUID.fromString(set.getString("TicketStatus")));
-                type = TicketManager.getInstance().getTicketType(UUID.fromString(set.getString("TicketStatus")));
+                ResultSet set = pS.executeQuery();
+                if (set.next()) {
+                    TicketStatus status;
+                    TicketType type;
+                    status = TicketManager.getInstance().getTicketStatus(getUUID(set, "TicketStatus"));
+                    type = TicketManager.getInstance().getTicketType(getUUID(set, "TicketStatus"));
 
 
 
-                return new Ticket(id, set.getString("CreatedBy"),
-                        set.getString("HandledBy"), set.getString("ChannelID"), status, type);
-            }
-        } catch (SQLException e) {
-            log.error(e.getMessage());
-        } catch (TicketSystemNotUsedException ignored) {}
-        return null;
+                    return new Ticket(id, set.getString("CreatedBy"),
+                            set.getString("HandledBy"), set.getString("ChannelID"), status, type);
+                }
+            } catch (SQLException e) {
+                log.error(e.getMessage());
+            } catch (TicketSystemNotUsedException ignored) {}
+            return null;
+        });
     }
 
     @Override
     public Ticket getTicket(String channel) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT UUID, CreatedBy, HandledBy, CreationDate," +
-                    " TicketStatus, TicketType, ChannelID" +
-                    " FROM tickets WHERE ChannelID = ?");
+        return timed("getTicketByChannel", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT UUID, CreatedBy, HandledBy, CreationDate," +
+                        " TicketStatus, TicketType, ChannelID" +
+                        " FROM tickets WHERE ChannelID = ?")) {
 
-            pS.setString(1, channel);
+                pS.setString(1, channel);
 
-            ResultSet set = pS.executeQuery();
-            if (set.next()) {
-                TicketStatus status;
-                TicketType type;
-                status = TicketManager.getInstance().getTicketStatus(UUID.fromString(set.getString("TicketStatus")));
-                type = TicketManager.getInstance().getTicketType(UUID.fromString(set.getString("TicketStatus")));
+                ResultSet set = pS.executeQuery();
+                if (set.next()) {
+                    TicketStatus status;
+                    TicketType type;
+                    status = TicketManager.getInstance().getTicketStatus(getUUID(set, "TicketStatus"));
+                    type = TicketManager.getInstance().getTicketType(getUUID(set, "TicketStatus"));
 
 
 
-                return new Ticket(UUID.fromString(set.getString("UUID")), set.getString("CreatedBy"),
-                        set.getString("HandledBy"), channel, status, type);
-            }
-        } catch (SQLException e) {
-            log.error(e.getMessage());
-        } catch (TicketSystemNotUsedException ignored) {}
-        return null;
+                    return new Ticket(getUUID(set, "UUID"), set.getString("CreatedBy"),
+                            set.getString("HandledBy"), channel, status, type);
+                }
+            } catch (SQLException e) {
+                log.error(e.getMessage());
+            } catch (TicketSystemNotUsedException ignored) {}
+            return null;
+        });
     }
 
     @Override
     public List<TicketType> getAllTicketTypes() {
-        List<TicketType> ticketTypes = new ArrayList<>();
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT TypeID, TypeName, Prefix, ShowInSelection, " +
-                    "SelectionEmoji, SelectionText FROM ticket_types");
-
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                ticketTypes.add(new TicketType(UUID.fromString(set.getString(1)),
-                        set.getString(2), set.getString(3), set.getBoolean(4),
-                        set.getString(5), set.getString(6)));
+        return timed("getAllTicketTypes", () -> {
+            List<TicketType> ticketTypes = new ArrayList<>();
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT TypeID, TypeName, Prefix, ShowInSelection, " +
+                        "SelectionEmoji, SelectionText FROM ticket_types")) {
+
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    ticketTypes.add(new TicketType(getUUID(set, 1),
+                            set.getString(2), set.getString(3), set.getBoolean(4),
+                            set.getString(5), set.getString(6)));
+                }
+            } catch (SQLException e) {
+                log.error(e.getMessage());
+                return List.of();
             }
-        } catch (SQLException e) {
-            log.error(e.getMessage());
-            return List.of();
-        }
-        return ticketTypes;
+            return ticketTypes;
+        });
     }
 
     @Override
     public List<TicketStatus> getAllTicketStatuses() {
-        List<TicketStatus> statuses = new ArrayList<>();
-        if (!checkConnection()) return statuses;
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT UUID, StatusName, Color, Description" +
-                    " FROM ticket_status_names");
-
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                statuses.add(new TicketStatus(UUID.fromString(set.getString(1)), set.getString(2),
-                        set.getString(4), DatabaseColorParser.parseColor(set.getString(3))));
+        return timed("getAllTicketStatuses", () -> {
+            List<TicketStatus> statuses = new ArrayList<>();
+            if (!checkConnection()) return statuses;
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT UUID, StatusName, Color, Description" +
+                        " FROM ticket_status_names")) {
+
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    statuses.add(new TicketStatus(getUUID(set, 1), set.getString(2),
+                            set.getString(4), DatabaseColorParser.parseColor(set.getString(3))));
+                }
+            } catch (SQLException e) {
+                log.error(e.getMessage());
+                return List.of();
             }
-        } catch (SQLException e) {
-            log.error(e.getMessage());
-            return List.of();
-        }
-        return statuses;
+            return statuses;
+        });
     }
 
     @Override
     public void addTicketType(TicketType ticketType) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO ticket_types " +
-                    "(TypeID, TypeName, Prefix, ShowInSelection, SelectionEmoji, SelectionText) " +
-                    "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE TypeName = ?, " +
-                    "Prefix = ?, ShowInSelection = ?, SelectionEmoji = ?, SelectionText = ?");
-
-            pS.setString(1, ticketType.uniqueID().toString());
-            pS.setString(2, ticketType.name());
-            pS.setString(3, ticketType.prefix());
-            pS.setBoolean(4, ticketType.showInSel());
-            pS.setString(5, ticketType.selEmoji());
-            pS.setString(6, ticketType.selText());
-            pS.setString(7, ticketType.name());
-            pS.setString(8, ticketType.prefix());
-            pS.setBoolean(9, ticketType.showInSel());
-            pS.setString(10, ticketType.selEmoji());
-            pS.setString(11, ticketType.selText());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to add ticket type: {}", e.getMessage());
-        }
+        timed("addTicketType", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO ticket_types " +
+                        "(TypeID, TypeName, Prefix, ShowInSelection, SelectionEmoji, SelectionText) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE TypeName = ?, " +
+                        "Prefix = ?, ShowInSelection = ?, SelectionEmoji = ?, SelectionText = ?")) {
+
+                setUUID(pS, 1, ticketType.uniqueID());
+                pS.setString(2, ticketType.name());
+                pS.setString(3, ticketType.prefix());
+                pS.setBoolean(4, ticketType.showInSel());
+                pS.setString(5, ticketType.selEmoji());
+                pS.setString(6, ticketType.selText());
+                pS.setString(7, ticketType.name());
+                pS.setString(8, ticketType.prefix());
+                pS.setBoolean(9, ticketType.showInSel());
+                pS.setString(10, ticketType.selEmoji());
+                pS.setString(11, ticketType.selText());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to add ticket type: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void deleteTicketType(TicketType ticketType) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM ticket_types WHERE TypeID = ?");
-            pS.setString(1, ticketType.uniqueID().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete ticket type: {}", e.getMessage());
-        }
+        timed("deleteTicketType", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("DELETE FROM ticket_types WHERE TypeID = ?")) {
+                setUUID(pS, 1, ticketType.uniqueID());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to delete ticket type: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void addTicketStatus(TicketStatus ticketStatus) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO ticket_status_names" +
-                    " (UUID, StatusName, Color, Description) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE StatusName = ?, " +
-                    "Color = ?, Description = ?");
-            pS.setString(1, ticketStatus.uniqueID().toString());
-            pS.setString(2, ticketStatus.statusName());
-            pS.setString(3, DatabaseColorParser.parseColor(ticketStatus.statusColor()));
-            pS.setString(4, ticketStatus.statusDescription());
-            pS.setString(5, ticketStatus.statusName());
-            pS.setString(6, DatabaseColorParser.parseColor(ticketStatus.statusColor()));
-            pS.setString(7, ticketStatus.statusDescription());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to add ticket status: {}", e.getMessage());
-        }
+        timed("addTicketStatus", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO ticket_status_names" +
+                        " (UUID, StatusName, Color, Description) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE StatusName = ?, " +
+                        "Color = ?, Description = ?")) {
+                setUUID(pS, 1, ticketStatus.uniqueID());
+                pS.setString(2, ticketStatus.statusName());
+                pS.setString(3, DatabaseColorParser.parseColor(ticketStatus.statusColor()));
+                pS.setString(4, ticketStatus.statusDescription());
+                pS.setString(5, ticketStatus.statusName());
+                pS.setString(6, DatabaseColorParser.parseColor(ticketStatus.statusColor()));
+                pS.setString(7, ticketStatus.statusDescription());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to add ticket status: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void deleteTicketStatus(TicketStatus ticketStatus) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM ticket_status_names WHERE UUID = ?");
-            pS.setString(1, ticketStatus.uniqueID().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete ticket status: {}", e.getMessage());
-        }
+        timed("deleteTicketStatus", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("DELETE FROM ticket_status_names WHERE UUID = ?")) {
+                setUUID(pS, 1, ticketStatus.uniqueID());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to delete ticket status: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void addTicketMessage(Ticket ticket, String message, String sender) {
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO ticket_transcripts " +
-                    "(TicketID, SenderName, MessageContent) VALUES (?, ?, ?)");
-            pS.setString(1, ticket.getUniqueID().toString());
-            pS.setString(2, sender);
-            pS.setString(3, message);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to add ticket message: {}", e.getMessage());
-        }
+        timed("addTicketMessage", () -> {
+            enqueueWrite("INSERT INTO ticket_transcripts (TicketID, SenderName, MessageContent, SentDate) " +
+                    "VALUES (?, ?, ?, ?)", uuidParam(ticket.getUniqueID()), sender, message, Instant.now().getEpochSecond());
+        });
     }
 
     @Override
     public void updateTicketStatus(Ticket ticket, TicketStatus ticketStatus) {
-        if (!checkConnection()) return;
+        timed("updateTicketStatus", () -> {
+            if (!checkConnection()) return;
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("UPDATE tickets SET TicketStatus = ? WHERE UUID = ?");
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("UPDATE tickets SET TicketStatus = ? WHERE UUID = ?")) {
 
-            pS.setString(1, ticketStatus.uniqueID().toString());
-            pS.setString(2, ticket.getUniqueID().toString());
+                setUUID(pS, 1, ticketStatus.uniqueID());
+                setUUID(pS, 2, ticket.getUniqueID());
 
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to update ticket status: {}", e.getMessage());
-        }
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to update ticket status: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void handleTicket(Ticket ticket, String handler) {
-        if (!checkConnection()) return;
+        timed("handleTicket", () -> {
+            if (!checkConnection()) return;
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("UPDATE tickets SET HandledBy = ? WHERE UUID = ?");
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("UPDATE tickets SET HandledBy = ? WHERE UUID = ?")) {
 
-            pS.setString(1, handler);
-            pS.setString(2, ticket.getUniqueID().toString());
+                pS.setString(1, handler);
+                setUUID(pS, 2, ticket.getUniqueID());
 
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to update ticket handler: {}", e.getMessage());
-        }
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to update ticket handler: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void deleteTicket(Ticket ticket) {
-        if (!checkConnection()) return;
+        timed("deleteTicket", () -> {
+            if (!checkConnection()) return;
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM tickets WHERE UUID = ?");
-            pS.setString(1, ticket.getUniqueID().toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete ticket: {}", e.getMessage());
-        }
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("DELETE FROM tickets WHERE UUID = ?")) {
+                setUUID(pS, 1, ticket.getUniqueID());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to delete ticket: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
@@ -731,158 +1024,273 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public UUID createPlayer() {
-        UUID id = UUID.randomUUID();
-        int number = new SecureRandom().nextInt(1000, 9999);
-        createPlayer(id, number);
-        return id;
+        return timed("createPlayer", () -> {
+            UUID id = UUID.randomUUID();
+            return createPlayer(id) == -1 ? null : id;
+        });
     }
 
     @Override
     public void createPlayer(UUID uuid, int number) {
-        if (!checkConnection()) return;
-        try (PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO players (PlayerID, PlayerNumber) VALUES (?, ?)")) {
-            pS.setString(1, uuid.toString());
+        timed("createPlayerWithNumber", () -> {
+            if (!checkConnection()) return;
+            insertPlayer(uuid, number);
+        });
+    }
+
+    @Override
+    public int createPlayer(UUID uuid) {
+        return timed("createPlayerWithUUID", () -> {
+            if (!checkConnection()) return -1;
+            int number = nextPlayerNumber();
+            if (number == -1) return -1;
+            return insertPlayer(uuid, number) ? number : -1;
+        });
+    }
+
+    private boolean insertPlayer(UUID uuid, int number) {
+        try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("INSERT INTO players (PlayerID, PlayerNumber) VALUES (?, ?)")) {
+            setUUID(pS, 1, uuid);
             pS.setInt(2, number);
             pS.execute();
+            return true;
         } catch (SQLException e) {
             log.error("Failed to create player: {}", e.getMessage());
+            return false;
         }
     }
 
     @Override
-    public void createPlayer(UUID uuid) {
-        int number = new SecureRandom().nextInt(1000, 9999);
-        createPlayer(uuid, number);
+    protected long reservePlayerNumbers(int amount) {
+        if (!checkConnection()) return -1;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement init = conn.prepareStatement("INSERT IGNORE INTO sequences (Name, NextValue) " +
+                         "SELECT ?, GREATEST(10000, COALESCE(MAX(PlayerNumber), 0) + 1) FROM players");
+                 PreparedStatement select = conn.prepareStatement("SELECT NextValue FROM sequences WHERE Name = ? FOR UPDATE");
+                 PreparedStatement update = conn.prepareStatement("UPDATE sequences SET NextValue = NextValue + ? WHERE Name = ?")) {
+                init.setString(1, PLAYER_NUMBER_SEQUENCE);
+                init.execute();
+
+                select.setString(1, PLAYER_NUMBER_SEQUENCE);
+                ResultSet set = select.executeQuery();
+                if (!set.next()) throw new SQLException("Sequence " + PLAYER_NUMBER_SEQUENCE + " does not exist");
+                long start = set.getLong(1);
+
+                update.setInt(1, amount);
+                update.setString(2, PLAYER_NUMBER_SEQUENCE);
+                update.execute();
+                conn.commit();
+                log.debug("Reserved player numbers {} to {}", start, start + amount - 1);
+                return start;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to reserve player numbers: {}", e.getMessage());
+            return -1;
+        }
     }
 
     @Override
     public void addMCAccount(UUID player, UUID mc) {
-        if (!checkConnection()) return;
-
-        String name = MinecraftUUIDFetcher.getByID(mc).orElse("unknown");
-
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO players_mc_accounts " +
-                    "(PlayerID, MC_UUID, MC_Name) VALUES (?, ?, ?);");
-            pS.setString(1, player.toString());
-            pS.setString(2, mc.toString());
-            pS.setString(3, name);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to add Minecraft account to player {}: {}", player.toString(), e.getMessage());
-        }
+        timed("addMCAccount", () -> {
+            if (!checkConnection()) return;
+
+            String name = MinecraftUUIDFetcher.getByID(mc).orElse("unknown");
+
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO players_mc_accounts " +
+                        "(PlayerID, MC_UUID, MC_Name) VALUES (?, ?, ?);")) {
+                setUUID(pS, 1, player);
+                setUUID(pS, 2, mc);
+                pS.setString(3, name);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to add Minecraft account to player {}: {}", player.toString(), e.getMessage());
+            }
+            getPlayerCache().invalidatePlayer(player);
+        });
     }
 
     @Override
     public void removeMCAccount(UUID player, UUID mc) {
-        if (!checkConnection()) return;
-
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM players_mc_accounts " +
-                    "WHERE PlayerID = ? AND MC_UUID = ?");
-            pS.setString(1, player.toString());
-            pS.setString(2, mc.toString());
-        } catch (SQLException e) {
-            log.error("Failed to remove Minecraft account from player {}: {}", player.toString(), e.getMessage());
-        }
+        timed("removeMCAccount", () -> {
+            if (!checkConnection()) return;
+
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("DELETE FROM players_mc_accounts " +
+                        "WHERE PlayerID = ? AND MC_UUID = ?")) {
+                setUUID(pS, 1, player);
+                setUUID(pS, 2, mc);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to remove Minecraft account from player {}: {}", player.toString(), e.getMessage());
+            }
+            getPlayerCache().invalidatePlayer(player);
+        });
     }
 
     @Override
     public String updateMCAccount(UUID player) {
-        String name = MinecraftUUIDFetcher.getByID(player).orElse("unknown");
-        if (!checkConnection()) return "";
-
-        try {
-            PreparedStatement pS = conn.prepareStatement("UPDATE players_mc_accounts SET MC_Name = ? WHERE MC_UUID = ?");
-            pS.setString(1, name);
-            pS.setString(2, player.toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to update Minecraft account for player {}: {}", player.toString(), e.getMessage());
-        }
-        return name;
+        return timed("updateMCAccount", () -> {
+            String name = MinecraftUUIDFetcher.getByID(player).orElse("unknown");
+            if (!checkConnection()) return "";
+
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("UPDATE players_mc_accounts SET MC_Name = ? WHERE MC_UUID = ?")) {
+                pS.setString(1, name);
+                setUUID(pS, 2, player);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to update Minecraft account for player {}: {}", player.toString(), e.getMessage());
+            }
+            getPlayerCache().invalidateAccounts();
+            return name;
+        });
     }
 
     @Override
     public UUID createProcess(UUID type, UUID initialStatus, UUID creator, String comment) {
-        if (!checkConnection()) return null;
-        UUID process = UUID.randomUUID();
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO processes" +
-                    " (ProcessID, CreatedBy, Status, ProcessType, CreationDate, Comment) " +
-                    "VALUES (?, ?, ?, ?, UNIX_TIMESTAMP(), ?)");
-            pS.setString(1, process.toString());
-            pS.setString(2, creator.toString());
-            pS.setString(3, initialStatus.toString());
-            pS.setString(4, type.toString());
-            pS.setString(5, comment);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to create process for type {}: {}", type.toString(), e.getMessage());
-        }
-        return process;
+        return timed("createProcess", () -> {
+            if (!checkConnection()) return null;
+            UUID process = UUID.randomUUID();
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO processes" +
+                        " (ProcessID, CreatedBy, Status, ProcessType, CreationDate, Comment) " +
+                        "VALUES (?, ?, ?, ?, UNIX_TIMESTAMP(), ?)")) {
+                setUUID(pS, 1, process);
+                setUUID(pS, 2, creator);
+                setUUID(pS, 3, initialStatus);
+                setUUID(pS, 4, type);
+                pS.setString(5, comment);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to create process for type {}: {}", type.toString(), e.getMessage());
+            }
+            return process;
+        });
     }
 
     @Override
     public void assignPlayerToProcess(UUID process, UUID player) {
-        if (!checkConnection()) return;
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO process_player_assignment (ProcessID, PlayerID) " +
-                    "VALUES (?, ?)");
-            pS.setString(1, process.toString());
-            pS.setString(2, player.toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to assign player to process {}: {}", process.toString(), e.getMessage());
-        }
+        timed("assignPlayerToProcess", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO process_player_assignment (ProcessID, PlayerID) " +
+                        "VALUES (?, ?)")) {
+                setUUID(pS, 1, process);
+                setUUID(pS, 2, player);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to assign player to process {}: {}", process.toString(), e.getMessage());
+            }
+        });
     }
 
     @Override
     public void updateProcessStatus(UUID process, UUID status) {
-        if (!checkConnection()) return;
-        try (PreparedStatement pS = conn.prepareStatement("UPDATE processes SET Status = ? WHERE ProcessID = ?")) {
-            pS.setString(1, status.toString());
-            pS.setString(2, process.toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to update process status for process {}: {}", process.toString(), e.getMessage());
-        }
+        timed("updateProcessStatus", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("UPDATE processes SET Status = ? WHERE ProcessID = ?")) {
+                setUUID(pS, 1, status);
+                setUUID(pS, 2, process);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to update process status for process {}: {}", process.toString(), e.getMessage());
+            }
+        });
     }
 
     @Override
     public void deletePlayer(UUID player) {
-
+        timed("deletePlayer", () -> {
+            if (!checkConnection()) return;
+
+            String[] statements = {
+                    "DELETE FROM players_mc_accounts WHERE PlayerID = ?",
+                    "DELETE FROM players_notes WHERE PlayerID = ?",
+                    "DELETE FROM process_player_assignment WHERE PlayerID = ?",
+                    "DELETE FROM punishments WHERE PlayerID = ?",
+                    "DELETE FROM players WHERE PlayerID = ?"
+            };
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    for (String sql : statements) {
+                        try (PreparedStatement pS = conn.prepareStatement(sql)) {
+                            setUUID(pS, 1, player);
+                            pS.execute();
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to delete player {}: {}", player, e.getMessage());
+            }
+            getPlayerCache().invalidatePlayer(player);
+        });
     }
 
     @Override
     public JsonObject getPlayer(UUID playerID) {
-        JsonObject player = new JsonObject();
-        player.addProperty("UUID", playerID.toString());
-        if (!checkConnection()) return player;
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT PlayerNumber FROM players WHERE PlayerID = ?");
-            pS.setString(1, playerID.toString());
+        return timed("getPlayer", () -> {
+            JsonObject player = new JsonObject();
+            player.addProperty("UUID", playerID.toString());
+            if (!checkConnection()) return player;
+            int number = getPlayerNumber(playerID);
+            if (number != -1) player.addProperty("playerNumber", number);
+            player.add("mcAccounts", getMCAccounts(playerID));
+            player.add("processes", getProcessesForPlayer(playerID));
+            player.add("punishments", getPunishmentsForPlayer(playerID));
+            player.add("notes", getPlayerNotes(playerID));
+            return player;
+        });
+    }
+
+    @Override
+    public int getPlayerNumber(UUID player) {
+        return timed("getPlayerNumber", () -> {
+            if (!checkConnection()) return -1;
+            return getPlayerCache().getPlayerNumber(player, this::loadPlayerNumber);
+        });
+    }
+
+    private int loadPlayerNumber(UUID player) {
+        try (Connection conn = getConnection();
+             PreparedStatement pS = conn.prepareStatement("SELECT PlayerNumber FROM players WHERE PlayerID = ?")) {
+            setUUID(pS, 1, player);
             ResultSet set = pS.executeQuery();
-            if (set.next()) player.addProperty("playerNumber", set.getInt(1));
+            if (set.next()) return set.getInt(1);
         } catch (SQLException e) {
-            log.error("Failed to get player number for player {}: {}", playerID, e.getMessage());
+            log.error("Failed to get player number for player {}: {}", player, e.getMessage());
         }
-        player.add("mcAccounts", getMCAccounts(playerID));
-        player.add("processes", getProcessesForPlayer(playerID));
-        player.add("punishments", getPunishmentsForPlayer(playerID));
-        player.add("notes", getPlayerNotes(playerID));
-        return player;
+        return -1;
     }
 
     @Override
     public UUID getPlayer(int player) {
-        if (!checkConnection()) return null;
+        return timed("getPlayerByNumber", () -> {
+            if (!checkConnection()) return null;
+            return getPlayerCache().getPlayer(player, this::loadPlayer);
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT PlayerID FROM players WHERE PlayerNumber = ?");
+    private UUID loadPlayer(int player) {
+        try (Connection conn = getConnection();
+             PreparedStatement pS = conn.prepareStatement("SELECT PlayerID FROM players WHERE PlayerNumber = ?")) {
             pS.setInt(1, player);
             ResultSet set = pS.executeQuery();
-            if (set.next()) return UUID.fromString(set.getString(1));
+            if (set.next()) return getUUID(set, 1);
         } catch (SQLException e) {
             log.error("Failed to get player id for player {}: {}", player, e.getMessage());
         }
@@ -891,13 +1299,18 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public UUID getPlayerByAccount(String mcName) {
-        if (!checkConnection()) return null;
+        return timed("getPlayerByAccount", () -> {
+            if (!checkConnection()) return null;
+            return getPlayerCache().getPlayerByAccount(mcName, this::loadPlayerByAccount);
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT PlayerID FROM players_mc_accounts WHERE MC_Name = ?");
+    private UUID loadPlayerByAccount(String mcName) {
+        try (Connection conn = getConnection();
+             PreparedStatement pS = conn.prepareStatement("SELECT PlayerID FROM players_mc_accounts WHERE MC_Name = ?")) {
             pS.setString(1, mcName);
             ResultSet set = pS.executeQuery();
-            if (set.next()) return UUID.fromString(set.getString(1));
+            if (set.next()) return getUUID(set, 1);
         } catch (SQLException e) {
             log.error("Failed to get player by account: {}", e.getMessage());
         }
@@ -906,285 +1319,673 @@ public class MySQLStorageProvider extends Storage {
 
     @Override
     public JsonArray getProcessesForPlayer(UUID player) {
-        JsonArray array = new JsonArray();
-        if (!checkConnection()) return array;
+        return timed("getProcessesForPlayer", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) return array;
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(PROCESS_QUERY)) {
+                setUUID(pS, 1, player);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readProcess(set));
+            } catch (SQLException e) {
+                log.error("Failed to retrieve processes for player {}: {}", player.toString(), e.getMessage());
+            }
+            return array;
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT p.ProcessID, p.CreatedBy, p.Status, p.ProcessType, p.Comment" +
-                    " FROM process_player_assignment AS a " +
-                    "LEFT OUTER JOIN processes AS p ON a.ProcessID = p.ProcessID WHERE a.PlayerID = ?");
-            pS.setString(1, player.toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                JsonObject o = new JsonObject();
-                o.addProperty("processID", set.getString(1));
-                o.addProperty("createdBy", set.getString(2));
-                o.addProperty("status", set.getString(3));
-                o.addProperty("type", set.getString(4));
-                o.addProperty("comment", set.getString(5));
-                array.add(o);
+    @Override
+    public JsonObject getProcessesForPlayer(UUID player, @Nullable PageCursor cursor, int limit) {
+        return timed("getProcessesForPlayerPage", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(PROCESS_QUERY +
+                         keysetCondition(cursor, "p.CreationDate", "p.ProcessID") +
+                         " ORDER BY p.CreationDate DESC, p.ProcessID DESC LIMIT ?")) {
+                setUUID(pS, 1, player);
+                int index = bindKeyset(pS, 2, cursor);
+                pS.setInt(index, limit + 1);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readProcess(set));
+            } catch (SQLException e) {
+                throw new StorageException("Failed to retrieve processes for player " + player, e);
             }
-        } catch (SQLException e) {
-            log.error("Failed to retrieve processes for player {}: {}", player.toString(), e.getMessage());
-        }
-        return array;
+            return createPage(array, limit, "creationDate", "processID");
+        });
+    }
+
+    private static final String PROCESS_QUERY = "SELECT p.ProcessID, p.CreatedBy, p.Status, p.ProcessType, p.Comment, " +
+            "p.CreationDate FROM process_player_assignment AS a " +
+            "LEFT OUTER JOIN processes AS p ON a.ProcessID = p.ProcessID WHERE a.PlayerID = ?";
+
+    private JsonObject readProcess(ResultSet set) throws SQLException {
+        JsonObject o = new JsonObject();
+        o.addProperty("processID", getUUIDString(set, 1));
+        o.addProperty("createdBy", getUUIDString(set, 2));
+        o.addProperty("status", getUUIDString(set, 3));
+        o.addProperty("type", getUUIDString(set, 4));
+        o.addProperty("comment", set.getString(5));
+        o.addProperty("creationDate", set.getLong(6));
+        return o;
     }
 
     @Override
     public JsonArray getPunishmentsForPlayer(UUID player) {
-        JsonArray array = new JsonArray();
-        if (!checkConnection()) return array;
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT PunishmentType, PlayerID, RecordID, CreationDate," +
-                    " CreateUserType, CreatedBy, ActionUntil, Reason, t.Name, t.TimedPossible, p.MarkDeleted FROM punishments AS p LEFT OUTER JOIN punishment_types AS t" +
-                    " ON p.PunishmentType = t.TypeID WHERE PlayerID = ?");
-            pS.setString(1, player.toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                JsonObject o = new JsonObject();
-                o.addProperty("PunishmentType", set.getString(1));
-                o.addProperty("PlayerID", set.getString(2));
-                o.addProperty("RecordID", set.getString(3));
-                o.addProperty("CreationDate", set.getLong(4));
-                o.addProperty("CreateUserType", set.getString(5));
-                o.addProperty("CreatedBy", set.getString(6));
-                o.addProperty("ActionUntil", set.getLong(7));
-                o.addProperty("Reason", set.getString(8));
-                o.addProperty("PunishmentName",  set.getString(9));
-                o.addProperty("TimedPossible", set.getBoolean(10));
-                o.addProperty("MarkDeleted", set.getBoolean(11));
-                array.add(o);
+        return timed("getPunishmentsForPlayer", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) return array;
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(PUNISHMENT_QUERY)) {
+                setUUID(pS, 1, player);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readPunishment(set));
+            } catch (SQLException e) {
+                log.error("Failed to retrieve punishments for player {}: {}", player.toString(), e.getMessage());
             }
-        } catch (SQLException e) {
-            log.error("Failed to retrieve punishments for player {}: {}", player.toString(), e.getMessage());
-        }
-        return array;
+            return array;
+        });
     }
 
     @Override
-    public JsonArray getProcessTypes() {
-        JsonArray array = new JsonArray();
-        if (!checkConnection()) return array;
+    public JsonObject getPunishmentsForPlayer(UUID player, @Nullable PageCursor cursor, int limit) {
+        return timed("getPunishmentsForPlayerPage", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(PUNISHMENT_QUERY +
+                         keysetCondition(cursor, "p.CreationDate", "p.RecordID") +
+                         " ORDER BY p.CreationDate DESC, p.RecordID DESC LIMIT ?")) {
+                setUUID(pS, 1, player);
+                int index = bindKeyset(pS, 2, cursor);
+                pS.setInt(index, limit + 1);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readPunishment(set));
+            } catch (SQLException e) {
+                throw new StorageException("Failed to retrieve punishments for player " + player, e);
+            }
+            return createPage(array, limit, "CreationDate", "RecordID");
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM process_types");
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                JsonObject o = new JsonObject();
-                o.addProperty("id", set.getString(1));
-                o.addProperty("name", set.getString(2));
-                o.addProperty("active", set.getBoolean(3));
-                o.addProperty("usePattern", set.getBoolean(4));
-                o.addProperty("pattern", set.getString(5));
-                array.add(o);
+    private static final String PUNISHMENT_QUERY = "SELECT PunishmentType, PlayerID, RecordID, CreationDate," +
+            " CreateUserType, CreatedBy, ActionUntil, Reason, t.Name, t.TimedPossible, p.MarkDeleted FROM punishments AS p LEFT OUTER JOIN punishment_types AS t" +
+            " ON p.PunishmentType = t.TypeID WHERE PlayerID = ?";
+
+    private JsonObject readPunishment(ResultSet set) throws SQLException {
+        JsonObject o = new JsonObject();
+        o.addProperty("PunishmentType", getUUIDString(set, 1));
+        o.addProperty("PlayerID", getUUIDString(set, 2));
+        o.addProperty("RecordID", getUUIDString(set, 3));
+        o.addProperty("CreationDate", set.getLong(4));
+        o.addProperty("CreateUserType", getUUIDString(set, 5));
+        o.addProperty("CreatedBy", getUUIDString(set, 6));
+        o.addProperty("ActionUntil", set.getLong(7));
+        o.addProperty("Reason", set.getString(8));
+        o.addProperty("PunishmentName",  set.getString(9));
+        o.addProperty("TimedPossible", set.getBoolean(10));
+        o.addProperty("MarkDeleted", set.getBoolean(11));
+        return o;
+    }
+
+    /**
+     * Creates the keyset condition continuing after the given cursor. Records are ordered newest first.
+     */
+    private String keysetCondition(@Nullable PageCursor cursor, String dateColumn, String idColumn) {
+        if (cursor == null) return "";
+        return " AND (" + dateColumn + " < ? OR (" + dateColumn + " = ? AND " + idColumn + " < ?))";
+    }
+
+    private int bindKeyset(PreparedStatement pS, int index, @Nullable PageCursor cursor) throws SQLException {
+        if (cursor == null) return index;
+        pS.setLong(index++, cursor.creationDate());
+        pS.setLong(index++, cursor.creationDate());
+        setUUID(pS, index++, cursor.id());
+        return index;
+    }
+
+    /**
+     * Creates a page from up to {@code limit + 1} fetched records. The additional record only signals that
+     * another page exists and is not returned.
+     */
+    private JsonObject createPage(JsonArray fetched, int limit, String dateProperty, String idProperty) {
+        if (fetched.size() <= limit) return PageCursor.page(fetched, null);
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < limit; i++) items.add(fetched.get(i));
+        JsonObject last = items.get(limit - 1).getAsJsonObject();
+        return PageCursor.page(items, new PageCursor(last.get(dateProperty).getAsLong(),
+                UUID.fromString(last.get(idProperty).getAsString())));
+    }
+
+    @Override
+    public JsonArray getProcessTypes() {
+        return timed("getProcessTypes", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) return array;
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT * FROM process_types")) {
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    JsonObject o = new JsonObject();
+                    o.addProperty("id", getUUIDString(set, 1));
+                    o.addProperty("name", set.getString(2));
+                    o.addProperty("active", set.getBoolean(3));
+                    o.addProperty("usePattern", set.getBoolean(4));
+                    o.addProperty("pattern", set.getString(5));
+                    array.add(o);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to retrieve process types: {}", e.getMessage());
             }
-        } catch (SQLException e) {
-            log.error("Failed to retrieve process types: {}", e.getMessage());
-        }
-        return array;
+            return array;
+        });
     }
 
     @Override
     public JsonArray getProcessStatuses() {
-        JsonArray array = new JsonArray();
-        if (!checkConnection()) return array;
-
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM process_status_names");
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                JsonObject o = new JsonObject();
-                o.addProperty("id", set.getString(1));
-                o.addProperty("name", set.getString(2));
-                o.addProperty("description", set.getString(4));
-                o.add("color", DatabaseColorParser.getColor(set.getString(3)));
-                array.add(o);
+        return timed("getProcessStatuses", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) return array;
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT * FROM process_status_names")) {
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    JsonObject o = new JsonObject();
+                    o.addProperty("id", getUUIDString(set, 1));
+                    o.addProperty("name", set.getString(2));
+                    o.addProperty("description", set.getString(4));
+                    o.add("color", DatabaseColorParser.getColor(set.getString(3)));
+                    array.add(o);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to retrieve process statuses: {}", e.getMessage());
             }
-        } catch (SQLException e) {
-            log.error("Failed to retrieve process statuses: {}", e.getMessage());
-        }
-        return array;
+            return array;
+        });
     }
 
     @Override
     public JsonArray getPlayerNotes(UUID player) {
-        JsonArray array = new JsonArray();
-        if (!checkConnection()) return array;
+        return timed("getPlayerNotes", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) return array;
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(NOTE_QUERY)) {
+                setUUID(pS, 1, player);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readNote(set));
+            } catch (SQLException e) {
+                log.error("Failed to retrieve notes for player {}: {}", player.toString(), e.getMessage());
+            }
+            return array;
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM players_notes WHERE PlayerID = ?");
-            pS.setString(1, player.toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) {
-                JsonObject o = new JsonObject();
-                o.addProperty("RecordID", set.getString(1));
-                o.addProperty("PlayerID", set.getString(2));
-                o.addProperty("UserID", set.getString(3));
-                o.addProperty("Note", set.getString(4));
-                o.addProperty("CreationDate", set.getLong(5));
-                array.add(o);
+    @Override
+    public JsonObject getPlayerNotes(UUID player, @Nullable PageCursor cursor, int limit) {
+        return timed("getPlayerNotesPage", () -> {
+            JsonArray array = new JsonArray();
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement(NOTE_QUERY +
+                         keysetCondition(cursor, "CreationDate", "RecordID") +
+                         " ORDER BY CreationDate DESC, RecordID DESC LIMIT ?")) {
+                setUUID(pS, 1, player);
+                int index = bindKeyset(pS, 2, cursor);
+                pS.setInt(index, limit + 1);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) array.add(readNote(set));
+            } catch (SQLException e) {
+                throw new StorageException("Failed to retrieve notes for player " + player, e);
             }
-        } catch (SQLException e) {
-            log.error("Failed to retrieve notes for player {}: {}", player.toString(), e.getMessage());
-        }
-        return array;
+            return createPage(array, limit, "CreationDate", "RecordID");
+        });
+    }
+
+    private static final String NOTE_QUERY = "SELECT RecordID, PlayerID, UserID, Note, CreationDate " +
+            "FROM players_notes WHERE PlayerID = ?";
+
+    private JsonObject readNote(ResultSet set) throws SQLException {
+        JsonObject o = new JsonObject();
+        o.addProperty("RecordID", getUUIDString(set, 1));
+        o.addProperty("PlayerID", getUUIDString(set, 2));
+        o.addProperty("UserID", getUUIDString(set, 3));
+        o.addProperty("Note", set.getString(4));
+        o.addProperty("CreationDate", set.getLong(5));
+        return o;
     }
 
     @Override
     public void createProcessType(String name, boolean usePattern, String pattern) {
-        if (!checkConnection()) return;
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO process_types " +
-                    "(TypeID, TypeName, Active, UsePattern, PatternUsed) VALUES (UUID(), ?, ?, ?, ?)");
-            pS.setString(1, name);
-            pS.setBoolean(2, true);
-            pS.setBoolean(3, usePattern);
-            pS.setString(4, pattern);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to create process type: {}", e.getMessage());
-        }
+        timed("createProcessType", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO process_types " +
+                        "(TypeID, TypeName, Active, UsePattern, PatternUsed) VALUES (?, ?, ?, ?, ?)")) {
+                setUUID(pS, 1, UUID.randomUUID());
+                pS.setString(2, name);
+                pS.setBoolean(3, true);
+                pS.setBoolean(4, usePattern);
+                pS.setString(5, pattern);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to create process type: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void createProcessStatus(String name, String color, String description) {
-        if (!checkConnection()) return;
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT INTO process_status_names " +
-                    "(UUID, StatusName, Color, Description) VALUES (UUID(), ?, ?, ?)");
-            pS.setString(1, name);
-            pS.setString(2, color);
-            pS.setString(3, description);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to create process status: {}", e.getMessage());
-        }
+        timed("createProcessStatus", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT INTO process_status_names " +
+                        "(UUID, StatusName, Color, Description) VALUES (?, ?, ?, ?)")) {
+                setUUID(pS, 1, UUID.randomUUID());
+                pS.setString(2, name);
+                pS.setString(3, color);
+                pS.setString(4, description);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to create process status: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void createPlayerNote(UUID player, UUID user, String note) {
-        if (!checkConnection()) return;
-
-        try {
-            PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO players_notes " +
-                    "(RecordID, PlayerID, UserID, Note, CreationDate) " +
-                    "VALUES (UUID(), ?, ?, ?, UNIX_TIMESTAMP())");
-            pS.setString(1, player.toString());
-            pS.setString(2, user.toString());
-            pS.setString(3, note);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to create player note: {}", e.getMessage());
-        }
+        timed("createPlayerNote", () -> {
+            if (!checkConnection()) return;
+
+            // Not queued, notes must be visible to reads right after they have been created
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("INSERT IGNORE INTO players_notes " +
+                         "(RecordID, PlayerID, UserID, Note, CreationDate) VALUES (?, ?, ?, ?, ?)")) {
+                setUUID(pS, 1, UUID.randomUUID());
+                setUUID(pS, 2, player);
+                setUUID(pS, 3, user);
+                pS.setString(4, note);
+                pS.setLong(5, Instant.now().getEpochSecond());
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to create player note: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public JsonArray getMCAccounts(UUID player) {
+        return timed("getMCAccounts", () -> {
+            return getPlayerCache().getMCAccounts(player, this::loadMCAccounts);
+        });
+    }
+
+    private JsonArray loadMCAccounts(UUID player) {
         JsonArray array = new JsonArray();
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT * FROM players_mc_accounts WHERE PlayerID = ?");
-            pS.setString(1, player.toString());
+        try (Connection conn = getConnection();
+             PreparedStatement pS = conn.prepareStatement("SELECT * FROM players_mc_accounts WHERE PlayerID = ?")) {
+            setUUID(pS, 1, player);
             ResultSet set = pS.executeQuery();
             while (set.next()) {
                 JsonObject o = new JsonObject();
-                o.addProperty("uuid", set.getString(2));
+                o.addProperty("uuid", getUUIDString(set, 2));
                 o.addProperty("name", set.getString(3));
                 array.add(o);
             }
         } catch (SQLException e) {
             log.error("Failed to get mc accounts for player: {}", e.getMessage());
+            return null;
         }
         return array;
     }
 
+    /**
+     * Gets the fetch size used for streaming large result sets.
+     * MySQL only streams rows one by one if the fetch size is {@link Integer#MIN_VALUE}.
+     * @return The fetch size passed to {@link Statement#setFetchSize(int)}.
+     */
+    protected int getStreamingFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
     @Override
-    public String getDiscordID(UUID user) {
-        if (!checkConnection()) return null;
-        try (PreparedStatement pS = conn.prepareStatement("SELECT DiscordID FROM discord_user_mappings WHERE UserID = ?")) {
-            pS.setString(1, user.toString());
-            ResultSet rs = pS.executeQuery();
-            if (rs.next()) return rs.getString(1);
+    public void exportPlayers(Writer out) throws IOException {
+        if (!checkConnection()) throw new IOException("Database is not available");
+        try (Connection conn = getReadConnection()) {
+            exportRows(conn, out, "player", "SELECT PlayerID, PlayerNumber FROM players", (set, o) -> {
+                o.addProperty("id", getUUIDString(set, 1));
+                o.addProperty("number", set.getInt(2));
+            });
+            exportRows(conn, out, "account", "SELECT PlayerID, MC_UUID, MC_Name FROM players_mc_accounts", (set, o) -> {
+                o.addProperty("player", getUUIDString(set, 1));
+                o.addProperty("uuid", getUUIDString(set, 2));
+                o.addProperty("name", set.getString(3));
+            });
+            exportRows(conn, out, "note", "SELECT RecordID, PlayerID, UserID, Note, CreationDate FROM players_notes",
+                    (set, o) -> {
+                o.addProperty("id", getUUIDString(set, 1));
+                o.addProperty("player", getUUIDString(set, 2));
+                o.addProperty("user", getUUIDString(set, 3));
+                o.addProperty("note", set.getString(4));
+                o.addProperty("creationDate", set.getLong(5));
+            });
+            exportRows(conn, out, "punishment", "SELECT RecordID, PunishmentType, CreationDate, CreateUserType, " +
+                    "CreatedBy, ActionUntil, Reason, PlayerID, MarkDeleted FROM punishments", (set, o) -> {
+                o.addProperty("id", getUUIDString(set, 1));
+                o.addProperty("punishmentType", getUUIDString(set, 2));
+                o.addProperty("creationDate", set.getLong(3));
+                o.addProperty("createUserType", getUUIDString(set, 4));
+                o.addProperty("createdBy", getUUIDString(set, 5));
+                long until = set.getLong(6);
+                if (!set.wasNull()) o.addProperty("actionUntil", until);
+                o.addProperty("reason", set.getString(7));
+                o.addProperty("player", getUUIDString(set, 8));
+                o.addProperty("deleted", set.getBoolean(9));
+            });
         } catch (SQLException e) {
-            log.error("Failed to get discord ID for user: {}", e.getMessage());
+            throw new IOException("Failed to export players: " + e.getMessage(), e);
         }
-        return null;
+    }
+
+    private void exportRows(Connection conn, Writer out, String type, String sql, RowExporter exporter)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (PreparedStatement pS = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pS.setFetchSize(getStreamingFetchSize());
+            try (ResultSet set = pS.executeQuery()) {
+                while (set.next()) {
+                    JsonObject o = new JsonObject();
+                    o.addProperty("type", type);
+                    exporter.export(set, o);
+                    out.write(o.toString());
+                    out.write('\n');
+                    rows++;
+                }
+            }
+        }
+        out.flush();
+        log.debug("Exported {} rows of type {}.", rows, type);
+    }
+
+    @FunctionalInterface
+    private interface RowExporter {
+        void export(ResultSet set, JsonObject o) throws SQLException;
     }
 
     @Override
-    public UUID getUserIDFromDiscordID(String discordID) {
-        if (!checkConnection()) return null;
-        try (PreparedStatement pS = conn.prepareStatement("SELECT UserID FROM discord_user_mappings WHERE DiscordID = ?")) {
-            pS.setString(1, discordID);
-            ResultSet rs = pS.executeQuery();
-            if (rs.next()) return UUID.fromString(rs.getString(1));
+    public JsonObject importPlayers(Reader in) throws IOException {
+        if (!checkConnection()) throw new IOException("Database is not available");
+        JsonObject result = new JsonObject();
+        BufferedReader reader = new BufferedReader(in);
+        int highestNumber = 0;
+        long skipped = 0;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            // Ordered by dependency, so parents are always written before their children
+            Map<String, ImportBatch> batches = new LinkedHashMap<>();
+            try {
+                batches.put("player", new ImportBatch(conn.prepareStatement(
+                        "INSERT IGNORE INTO players (PlayerID, PlayerNumber) VALUES (?, ?)")));
+                batches.put("account", new ImportBatch(conn.prepareStatement(
+                        "INSERT INTO players_mc_accounts (PlayerID, MC_UUID, MC_Name) SELECT ?, ?, ? FROM DUAL " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM players_mc_accounts WHERE PlayerID = ? AND MC_UUID = ?)")));
+                batches.put("note", new ImportBatch(conn.prepareStatement(
+                        "INSERT IGNORE INTO players_notes (RecordID, PlayerID, UserID, Note, CreationDate) " +
+                        "VALUES (?, ?, ?, ?, ?)")));
+                batches.put("punishment", new ImportBatch(conn.prepareStatement(
+                        "INSERT IGNORE INTO punishments (RecordID, PunishmentType, CreationDate, CreateUserType, " +
+                        "CreatedBy, ActionUntil, Reason, PlayerID, MarkDeleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")));
+
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) continue;
+                    try {
+                        JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+                        String type = o.get("type").getAsString();
+                        ImportBatch batch = batches.get(type);
+                        if (batch == null) throw new IllegalArgumentException("Unknown type " + type);
+                        bindImportRow(type, batch.statement, o);
+                        if (type.equals("player")) highestNumber = Math.max(highestNumber, o.get("number").getAsInt());
+                        batch.add();
+                        if (batch.pending >= IMPORT_BATCH_SIZE) {
+                            for (ImportBatch b : batches.values()) b.flush();
+                            if (highestNumber > 0) advancePlayerNumbers(conn, highestNumber + 1);
+                            conn.commit();
+                        }
+                    } catch (RuntimeException e) {
+                        skipped++;
+                        log.debug("Skipping invalid line {}: {}", lineNumber, e.getMessage());
+                    }
+                }
+                for (ImportBatch b : batches.values()) b.flush();
+                if (highestNumber > 0) advancePlayerNumbers(conn, highestNumber + 1);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                for (ImportBatch b : batches.values()) b.statement.close();
+                conn.setAutoCommit(true);
+                // The reserved block might contain imported numbers, even if only some batches have been committed
+                resetPlayerNumbers();
+            }
+            batches.forEach((type, batch) -> result.addProperty(type, batch.inserted));
         } catch (SQLException e) {
-            log.error("Failed to get user ID for discord user: {}", e.getMessage());
+            throw new IOException("Failed to import players: " + e.getMessage(), e);
+        }
+        result.addProperty("skipped", skipped);
+
+        getPlayerCache().invalidateAll();
+        log.info("Imported players: {}", result);
+        return result;
+    }
+
+    private void bindImportRow(String type, PreparedStatement pS, JsonObject o) throws SQLException {
+        switch (type) {
+            case "player" -> {
+                setUUID(pS, 1, UUID.fromString(o.get("id").getAsString()));
+                pS.setInt(2, o.get("number").getAsInt());
+            }
+            case "account" -> {
+                UUID player = UUID.fromString(o.get("player").getAsString());
+                UUID account = UUID.fromString(o.get("uuid").getAsString());
+                setUUID(pS, 1, player);
+                setUUID(pS, 2, account);
+                pS.setString(3, o.get("name").getAsString());
+                setUUID(pS, 4, player);
+                setUUID(pS, 5, account);
+            }
+            case "note" -> {
+                setUUID(pS, 1, UUID.fromString(o.get("id").getAsString()));
+                setUUID(pS, 2, UUID.fromString(o.get("player").getAsString()));
+                setUUID(pS, 3, UUID.fromString(o.get("user").getAsString()));
+                pS.setString(4, o.get("note").getAsString());
+                pS.setLong(5, o.get("creationDate").getAsLong());
+            }
+            case "punishment" -> {
+                setUUID(pS, 1, UUID.fromString(o.get("id").getAsString()));
+                setUUID(pS, 2, UUID.fromString(o.get("punishmentType").getAsString()));
+                pS.setLong(3, o.get("creationDate").getAsLong());
+                setUUID(pS, 4, UUID.fromString(o.get("createUserType").getAsString()));
+                setUUID(pS, 5, UUID.fromString(o.get("createdBy").getAsString()));
+                if (o.has("actionUntil")) pS.setLong(6, o.get("actionUntil").getAsLong());
+                else pS.setNull(6, Types.BIGINT);
+                pS.setString(7, o.has("reason") ? o.get("reason").getAsString() : null);
+                setUUID(pS, 8, UUID.fromString(o.get("player").getAsString()));
+                pS.setBoolean(9, o.has("deleted") && o.get("deleted").getAsBoolean());
+            }
+        }
+    }
+
+    /**
+     * Makes sure the player number sequence does not hand out numbers below the given value or any player number
+     * in use. Creates the sequence if no number has been reserved yet.
+     */
+    private void advancePlayerNumbers(Connection conn, int next) throws SQLException {
+        try (PreparedStatement pS = conn.prepareStatement("INSERT INTO sequences (Name, NextValue) " +
+                "SELECT ?, GREATEST(10000, COALESCE(MAX(PlayerNumber), 0) + 1) FROM players " +
+                "ON DUPLICATE KEY UPDATE NextValue = GREATEST(NextValue, ?)")) {
+            pS.setString(1, PLAYER_NUMBER_SEQUENCE);
+            pS.setLong(2, next);
+            if (pS.executeUpdate() == 0) log.debug("Player number sequence is already beyond {}", next);
+            else log.debug("Advanced player number sequence to at least {}", next);
+        }
+    }
+
+    private static final class ImportBatch {
+        private final PreparedStatement statement;
+        private int pending = 0;
+        private long inserted = 0;
+
+        private ImportBatch(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private void add() throws SQLException {
+            statement.addBatch();
+            pending++;
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) return;
+            for (int count : statement.executeBatch()) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) inserted++;
+            }
+            pending = 0;
         }
-        return null;
+    }
+
+    @Override
+    public String getDiscordID(UUID user) {
+        return timed("getDiscordID", () -> {
+            if (!checkConnection()) return null;
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("SELECT DiscordID FROM discord_user_mappings WHERE UserID = ?")) {
+                setUUID(pS, 1, user);
+                ResultSet rs = pS.executeQuery();
+                if (rs.next()) return rs.getString(1);
+            } catch (SQLException e) {
+                log.error("Failed to get discord ID for user: {}", e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public UUID getUserIDFromDiscordID(String discordID) {
+        return timed("getUserIDFromDiscordID", () -> {
+            if (!checkConnection()) return null;
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("SELECT UserID FROM discord_user_mappings WHERE DiscordID = ?")) {
+                pS.setString(1, discordID);
+                ResultSet rs = pS.executeQuery();
+                if (rs.next()) return getUUID(rs, 1);
+            } catch (SQLException e) {
+                log.error("Failed to get user ID for discord user: {}", e.getMessage());
+            }
+            return null;
+        });
     }
 
     @Override
     public void mapUserDiscord(String discord, UUID user) {
-        if (!checkConnection()) return;
-        try (PreparedStatement pS = conn.prepareStatement("INSERT INTO discord_user_mappings (UserID, DiscordID) VALUES (?, ?)")) {
-            pS.setString(1, user.toString());
-            pS.setString(2, discord);
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to map user ID for discord user: {}", e.getMessage());
-        }
+        timed("mapUserDiscord", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("INSERT INTO discord_user_mappings (UserID, DiscordID) VALUES (?, ?)")) {
+                setUUID(pS, 1, user);
+                pS.setString(2, discord);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to map user ID for discord user: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public void removeMappingDCUser(UUID user) {
-        if (!checkConnection()) return;
-        try (PreparedStatement pS = conn.prepareStatement("DELETE FROM discord_user_mappings WHERE UserID = ?")) {
-            pS.setString(1, user.toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to remove user mappings for player: {}", e.getMessage());
-        }
+        timed("removeMappingDCUser", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection(); PreparedStatement pS = conn.prepareStatement("DELETE FROM discord_user_mappings WHERE UserID = ?")) {
+                setUUID(pS, 1, user);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to remove user mappings for player: {}", e.getMessage());
+            }
+        });
     }
 
     @Override
     public List<String> getUserPermissions(UUID uuid) {
-        List<String> permissions = new ArrayList<>();
-        if (!checkConnection()) return permissions;
+        return timed("getUserPermissions", () -> {
+            List<String> permissions = new ArrayList<>();
+            if (!checkConnection()) return permissions;
+
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT p.PermissionKey FROM user_permissions AS up" +
+                        " LEFT OUTER JOIN permissions AS p ON up.PermissionID = p.UUID WHERE up.UserID = ?")) {
+                setUUID(pS, 1, uuid);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) permissions.add(set.getString(1));
+            } catch (SQLException e) {
+                log.error("Failed to get permissions for player: {}", e.getMessage());
+            }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("SELECT p.PermissionKey FROM user_permissions AS up" +
-                    " LEFT OUTER JOIN permissions AS p ON up.PermissionID = p.UUID WHERE up.UserID = ?");
-            pS.setString(1, uuid.toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) permissions.add(set.getString(1));
-        } catch (SQLException e) {
-            log.error("Failed to get permissions for player: {}", e.getMessage());
-        }
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pS = conn.prepareStatement("""
+                    SELECT p.PermissionKey FROM user_roles AS ur LEFT OUTER JOIN role_permissions AS r ON ur.RoleID = r.RoleID
+                    LEFT OUTER JOIN permissions AS p ON r.PermissionID = p.UUID WHERE ur.UserID = ?
+                    """
+                )) {
+                setUUID(pS, 1, uuid);
+                ResultSet set = pS.executeQuery();
+                while (set.next()) permissions.add(set.getString(1));
+            } catch (SQLException e) {
+                log.error("Failed to get role permissions for player: {}", e.getMessage());
+            }
+            return permissions;
+        });
+    }
 
-        try {
-            PreparedStatement pS = conn.prepareStatement("""
-                SELECT p.PermissionKey FROM user_roles AS ur LEFT OUTER JOIN role_permissions AS r ON ur.RoleID = r.RoleID
-                LEFT OUTER JOIN permissions AS p ON r.PermissionID = p.UUID WHERE ur.UserID = ?
-                """
-            );
-            pS.setString(1, uuid.toString());
-            ResultSet set = pS.executeQuery();
-            while (set.next()) permissions.add(set.getString(1));
-        } catch (SQLException e) {
-            log.error("Failed to get role permissions for player: {}", e.getMessage());
-        }
-        return permissions;
+    @Override
+    public Map<UUID, Set<String>> getAllUserPermissions() {
+        return timed("getAllUserPermissions", () -> {
+            Map<UUID, Set<String>> permissions = new HashMap<>();
+            if (!checkConnection()) throw new StorageException("Database is not reachable");
+
+            // Read from the primary, as a sync should not revert to data a replica has not caught up with yet
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("SELECT up.UserID, p.PermissionKey FROM user_permissions AS up" +
+                         " INNER JOIN permissions AS p ON up.PermissionID = p.UUID")) {
+                ResultSet set = pS.executeQuery();
+                while (set.next()) {
+                    UUID user = getUUID(set, 1);
+                    if (user != null) permissions.computeIfAbsent(user, k -> new HashSet<>()).add(set.getString(2));
+                }
+            } catch (SQLException e) {
+                throw new StorageException("Failed to get permissions of all users", e);
+            }
+            return permissions;
+        });
     }
 
     @Override
     public void deletePlayerNote(UUID player, UUID user, UUID note) {
-        if (!checkConnection()) return;
-        try {
-            PreparedStatement pS = conn.prepareStatement("DELETE FROM players_notes WHERE RecordID = ?");
-            pS.setString(1, note.toString());
-            pS.execute();
-        } catch (SQLException e) {
-            log.error("Failed to delete player note: {}", e.getMessage());
-        }
+        timed("deletePlayerNote", () -> {
+            if (!checkConnection()) return;
+            try (Connection conn = getConnection();
+                 PreparedStatement pS = conn.prepareStatement("DELETE FROM players_notes WHERE RecordID = ?")) {
+                setUUID(pS, 1, note);
+                pS.execute();
+            } catch (SQLException e) {
+                log.error("Failed to delete player note: {}", e.getMessage());
+            }
+        });
     }
 }
\ No newline at end of file
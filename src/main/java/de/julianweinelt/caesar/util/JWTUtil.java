@@ -5,12 +5,18 @@ import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import de.julianweinelt.caesar.Caesar;
 import de.julianweinelt.caesar.storage.Configuration;
 import de.julianweinelt.caesar.storage.LocalStorage;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.UUID;
@@ -26,11 +32,19 @@ public class JWTUtil {
     private static final Logger log = LoggerFactory.getLogger(JWTUtil.class);
 
     private final JWTVerifier verifier;
+    /**
+     * Recently verified tokens, keyed by the SHA-256 hash of the token. Entries are only used until the token expires.
+     */
+    private final Cache<String, DecodedJWT> verified;
 
     public JWTUtil() {
         String secret = LocalStorage.getInstance().getData().getJwtSecret();
         if (secret == null) secret = "123456789";
         verifier = JWT.require(Algorithm.HMAC256(secret)).build();
+        verified = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofMinutes(Math.max(1, LocalStorage.getInstance().getData().getTokenExpirationTime())))
+                .build();
     }
 
     public static JWTUtil getInstance() {
@@ -79,13 +93,22 @@ public class JWTUtil {
     }
 
     /**
-     * Decode the given JWT token.
+     * Decode the given JWT token. Tokens that have been verified recently are not verified again until they expire.
      * @param token the JWT token as a {@link String}
      * @return the decoded JWT token as a {@link DecodedJWT}, or null if the token is invalid
      */
+    @Nullable
     public DecodedJWT decode(String token) {
+        String key = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+        DecodedJWT cached = verified.getIfPresent(key);
+        if (cached != null) {
+            if (cached.getExpiresAt() == null || cached.getExpiresAt().after(new Date())) return cached;
+            verified.invalidate(key);
+        }
         try {
-            return verifier.verify(token);
+            DecodedJWT decoded = verifier.verify(token);
+            verified.put(key, decoded);
+            return decoded;
         } catch (JWTVerificationException e) {
             log.error("Failed to decode JWT token: {}", e.getMessage());
             return null;
@@ -100,12 +123,6 @@ public class JWTUtil {
      * @return {@code true} if the token is valid, {@code false} otherwise
      */
     public boolean verify(String token) {
-        try {
-            verifier.verify(token);
-            return true;
-        } catch (JWTVerificationException e) {
-            log.error("Failed to verify JWT token: {}", e.getMessage());
-            return false;
-        }
+        return decode(token) != null;
     }
 }
\ No newline at end of file
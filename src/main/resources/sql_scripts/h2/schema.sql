@@ -0,0 +1,261 @@
+-- Schema for the embedded H2 storage (MySQL compatibility mode) --
+-- Mirrors the MySQL scripts up to v0.3.0. Every statement must be idempotent, as this script runs on each start.
+
+CREATE TABLE IF NOT EXISTS users (
+    UUID                VARCHAR(36) NOT NULL PRIMARY KEY,
+    Username            VARCHAR(20) NOT NULL UNIQUE,
+    PasswordHashed      INT NOT NULL,
+    CreationDate        DATETIME NULL,
+    Active              TINYINT NOT NULL DEFAULT 1,
+    NewlyCreated        TINYINT NOT NULL DEFAULT 1,
+    ApplyPasswordPolicy TINYINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS permissions (
+    UUID           VARCHAR(36) NOT NULL PRIMARY KEY,
+    NameKey        VARCHAR(60) NOT NULL UNIQUE,
+    PermissionKey  VARCHAR(60) NOT NULL UNIQUE,
+    DefaultGranted TINYINT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_permissions (
+    UserID       VARCHAR(36) NOT NULL,
+    PermissionID VARCHAR(36) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+    UUID         VARCHAR(36) NOT NULL PRIMARY KEY,
+    NameKey      VARCHAR(60) NULL,
+    DisplayColor VARCHAR(16) NOT NULL DEFAULT '0;0;0;100',
+    CreationDate BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP()
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    UserID VARCHAR(36) NOT NULL,
+    RoleID VARCHAR(36) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS role_permissions (
+    RoleID       VARCHAR(36) NOT NULL,
+    PermissionID VARCHAR(36) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS process_status_names (
+    UUID        VARCHAR(36) NOT NULL PRIMARY KEY,
+    StatusName  VARCHAR(36) NOT NULL UNIQUE,
+    Color       VARCHAR(16) NOT NULL DEFAULT '0;0;0;100',
+    Description VARCHAR(150) NULL
+);
+
+CREATE TABLE IF NOT EXISTS ticket_status_names (
+    UUID        VARCHAR(36) NOT NULL PRIMARY KEY,
+    StatusName  VARCHAR(36) NOT NULL UNIQUE,
+    Color       VARCHAR(16) NOT NULL DEFAULT '0;0;0;100',
+    Description VARCHAR(150) NULL
+);
+
+CREATE TABLE IF NOT EXISTS ticket_types (
+    TypeID          VARCHAR(36) NOT NULL PRIMARY KEY,
+    TypeName        VARCHAR(16) NOT NULL,
+    Prefix          VARCHAR(15) NOT NULL DEFAULT 'ticket',
+    ShowInSelection TINYINT NOT NULL DEFAULT 1,
+    SelectionEmoji  VARCHAR(16) NULL,
+    SelectionText   VARCHAR(30) NOT NULL DEFAULT 'Ticket'
+);
+
+CREATE TABLE IF NOT EXISTS process_types (
+    TypeID      VARCHAR(36) NOT NULL PRIMARY KEY,
+    TypeName    VARCHAR(30) NOT NULL,
+    Active      TINYINT NOT NULL DEFAULT 1,
+    UsePattern  TINYINT NOT NULL DEFAULT 0,
+    PatternUsed VARCHAR(36) NULL
+);
+
+CREATE TABLE IF NOT EXISTS processes (
+    ProcessID    VARCHAR(36) NOT NULL PRIMARY KEY,
+    CreatedBy    VARCHAR(36) NOT NULL,
+    Status       VARCHAR(36) NOT NULL,
+    ProcessType  VARCHAR(36) NOT NULL,
+    CreationDate BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP(),
+    Comment      VARCHAR(150) NOT NULL DEFAULT 'Nothing to see here'
+);
+
+CREATE TABLE IF NOT EXISTS tickets (
+    UUID         VARCHAR(36) NOT NULL PRIMARY KEY,
+    CreatedBy    VARCHAR(140) NULL,
+    HandledBy    VARCHAR(140) NULL,
+    CreationDate BIGINT NULL,
+    TicketStatus VARCHAR(36) NOT NULL,
+    TicketType   VARCHAR(36) NOT NULL,
+    ChannelID    VARCHAR(45) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS ticket_transcripts (
+    TicketID       VARCHAR(36) NOT NULL,
+    SenderName     VARCHAR(50) NOT NULL,
+    MessageContent VARCHAR(5000) NULL,
+    SentDate       BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP()
+);
+
+CREATE TABLE IF NOT EXISTS server_data (
+    UUID      VARCHAR(36) NOT NULL,
+    Name      VARCHAR(80) NOT NULL,
+    TimeStamp BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP(),
+    Players   INT NOT NULL DEFAULT 0,
+    cpu       FLOAT NOT NULL,
+    memory    INT NOT NULL,
+    TPS       INT NOT NULL DEFAULT 20
+);
+
+CREATE TABLE IF NOT EXISTS punishments (
+    RecordID       VARCHAR(36) NOT NULL PRIMARY KEY,
+    PunishmentType VARCHAR(36) NOT NULL,
+    CreationDate   BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP(),
+    CreateUserType VARCHAR(36) NOT NULL,
+    CreatedBy      VARCHAR(36) NOT NULL,
+    ActionUntil    BIGINT NULL,
+    Reason         VARCHAR(500) NULL DEFAULT 'Not provided',
+    PlayerID       VARCHAR(36) NOT NULL DEFAULT '',
+    MarkDeleted    TINYINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS punishment_types (
+    TypeID        VARCHAR(36) NOT NULL PRIMARY KEY,
+    NameKey       VARCHAR(100) NOT NULL DEFAULT '',
+    Name          VARCHAR(100) NOT NULL,
+    TimedPossible TINYINT
+);
+
+CREATE TABLE IF NOT EXISTS user_types (
+    RecordID VARCHAR(36) NOT NULL PRIMARY KEY,
+    Name     VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS reports (
+    RecordID     VARCHAR(36) NOT NULL PRIMARY KEY,
+    CreatedBy    VARCHAR(36) NOT NULL,
+    Reported     VARCHAR(36) NOT NULL,
+    ReportType   VARCHAR(36) NOT NULL,
+    ReportStatus VARCHAR(36) NOT NULL,
+    CreationDate BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP()
+);
+
+CREATE TABLE IF NOT EXISTS reports_update_history (
+    RecordID        VARCHAR(36) NOT NULL PRIMARY KEY,
+    ReportID        VARCHAR(36) NOT NULL,
+    UpdaterUserType VARCHAR(36) NOT NULL,
+    Updater         VARCHAR(36) NOT NULL,
+    NewStatus       VARCHAR(36) NULL,
+    Message         VARCHAR(200) NULL,
+    UpdateTime      BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP()
+);
+
+CREATE TABLE IF NOT EXISTS reports_types (
+    RecordID VARCHAR(36) NOT NULL PRIMARY KEY,
+    Name     VARCHAR(100) NOT NULL,
+    NameKey  VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS reports_status (
+    RecordID  VARCHAR(36) NOT NULL PRIMARY KEY,
+    Color     VARCHAR(15) NOT NULL DEFAULT '255:255:255:100',
+    Name      VARCHAR(100) NOT NULL,
+    NameKey   VARCHAR(20) NOT NULL,
+    IsArchive TINYINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS players (
+    PlayerID     VARCHAR(36) NOT NULL PRIMARY KEY,
+    PlayerNumber INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS process_player_assignment (
+    ProcessID VARCHAR(36) NOT NULL,
+    PlayerID  VARCHAR(36) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS players_notes (
+    RecordID     VARCHAR(36) NOT NULL PRIMARY KEY,
+    PlayerID     VARCHAR(36) NOT NULL,
+    UserID       VARCHAR(36) NOT NULL,
+    Note         VARCHAR(500) NOT NULL,
+    CreationDate BIGINT NOT NULL DEFAULT UNIX_TIMESTAMP()
+);
+
+CREATE TABLE IF NOT EXISTS players_mc_accounts (
+    PlayerID VARCHAR(36) NOT NULL,
+    MC_UUID  VARCHAR(36) NOT NULL,
+    MC_Name  VARCHAR(36) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS discord_user_mappings (
+    UserID    VARCHAR(36) NOT NULL,
+    DiscordID VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sequences (
+    Name      VARCHAR(50) NOT NULL PRIMARY KEY,
+    NextValue BIGINT NOT NULL
+);
+
+ALTER TABLE user_permissions ADD CONSTRAINT IF NOT EXISTS user_permissions__perm_fk
+    FOREIGN KEY (PermissionID) REFERENCES permissions (UUID);
+ALTER TABLE user_permissions ADD CONSTRAINT IF NOT EXISTS user_permissions_users_UUID_fk
+    FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE user_roles ADD CONSTRAINT IF NOT EXISTS user_roles_roles_role_fk
+    FOREIGN KEY (RoleID) REFERENCES roles (UUID);
+ALTER TABLE user_roles ADD CONSTRAINT IF NOT EXISTS user_roles_users_user_fk
+    FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE role_permissions ADD CONSTRAINT IF NOT EXISTS role_permissions_permissions_id_fk
+    FOREIGN KEY (PermissionID) REFERENCES permissions (UUID);
+ALTER TABLE role_permissions ADD CONSTRAINT IF NOT EXISTS role_permissions_roles_id_fk
+    FOREIGN KEY (RoleID) REFERENCES roles (UUID);
+ALTER TABLE processes ADD CONSTRAINT IF NOT EXISTS processes_process_status_names_UUID_fk
+    FOREIGN KEY (Status) REFERENCES process_status_names (UUID);
+ALTER TABLE processes ADD CONSTRAINT IF NOT EXISTS processes_process_types_TypeID_fk
+    FOREIGN KEY (ProcessType) REFERENCES process_types (TypeID);
+ALTER TABLE processes ADD CONSTRAINT IF NOT EXISTS processes_users_UUID_fk
+    FOREIGN KEY (CreatedBy) REFERENCES users (UUID);
+ALTER TABLE tickets ADD CONSTRAINT IF NOT EXISTS tickets_ticket_status_names_UUID_fk
+    FOREIGN KEY (TicketStatus) REFERENCES ticket_status_names (UUID);
+ALTER TABLE tickets ADD CONSTRAINT IF NOT EXISTS tickets_ticket_types_UUID_fk
+    FOREIGN KEY (TicketType) REFERENCES ticket_types (TypeID);
+ALTER TABLE ticket_transcripts ADD CONSTRAINT IF NOT EXISTS ticket_transcripts_tickets_UUID_fk
+    FOREIGN KEY (TicketID) REFERENCES tickets (UUID);
+ALTER TABLE players_notes ADD CONSTRAINT IF NOT EXISTS player_note_player_fk
+    FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE players_notes ADD CONSTRAINT IF NOT EXISTS player_note_user_fk
+    FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE players_mc_accounts ADD CONSTRAINT IF NOT EXISTS players_mc_fk
+    FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE process_player_assignment ADD CONSTRAINT IF NOT EXISTS process_player_process_id_fk
+    FOREIGN KEY (ProcessID) REFERENCES processes (ProcessID);
+ALTER TABLE process_player_assignment ADD CONSTRAINT IF NOT EXISTS process_player_player_id_fk
+    FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE punishments ADD CONSTRAINT IF NOT EXISTS punishments_types_fk
+    FOREIGN KEY (PunishmentType) REFERENCES punishment_types (TypeID);
+ALTER TABLE punishments ADD CONSTRAINT IF NOT EXISTS punishments_player_fk
+    FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE punishments ADD CONSTRAINT IF NOT EXISTS punishments_user_types_fk
+    FOREIGN KEY (CreateUserType) REFERENCES user_types (RecordID);
+ALTER TABLE reports ADD CONSTRAINT IF NOT EXISTS reports_types_fk
+    FOREIGN KEY (ReportType) REFERENCES reports_types (RecordID);
+ALTER TABLE reports ADD CONSTRAINT IF NOT EXISTS reports_status_fk
+    FOREIGN KEY (ReportStatus) REFERENCES reports_status (RecordID);
+ALTER TABLE reports_update_history ADD CONSTRAINT IF NOT EXISTS reports_hist_report_fk
+    FOREIGN KEY (ReportID) REFERENCES reports (RecordID);
+ALTER TABLE reports_update_history ADD CONSTRAINT IF NOT EXISTS reports_hist_user_fk
+    FOREIGN KEY (UpdaterUserType) REFERENCES user_types (RecordID);
+ALTER TABLE reports_update_history ADD CONSTRAINT IF NOT EXISTS reports_hist_status_fk
+    FOREIGN KEY (NewStatus) REFERENCES reports_status (RecordID);
+ALTER TABLE discord_user_mappings ADD CONSTRAINT IF NOT EXISTS dc_user_fk
+    FOREIGN KEY (UserID) REFERENCES users (UUID);
+
+CREATE INDEX IF NOT EXISTS processes_creation_idx ON processes (CreationDate, ProcessID);
+CREATE INDEX IF NOT EXISTS process_player_idx ON process_player_assignment (PlayerID, ProcessID);
+CREATE INDEX IF NOT EXISTS punishments_player_creation_idx ON punishments (PlayerID, CreationDate, RecordID);
+CREATE INDEX IF NOT EXISTS players_notes_player_creation_idx ON players_notes (PlayerID, CreationDate, RecordID);
+
+INSERT IGNORE INTO user_types (RecordID, Name) VALUES ('b1814b18-664e-4d4c-9a0d-2151fbc5e8ef', 'Console'),
+                                                      ('b845e723-a84e-4d89-b1fa-e35a415dd173', 'MinecraftPlayer'),
+                                                      ('cab5044e-786b-456b-aaf6-435f5ac685b5', 'CaesarUser');
@@ -0,0 +1,237 @@
+-- Converts all UUID columns from VARCHAR(36) to BINARY(16) --
+-- Requires MySQL 8.0 or newer. Run with 'storage migrate-uuids' and back up your database first!
+-- Foreign keys are dropped before the conversion and recreated afterward.
+
+ALTER TABLE user_permissions DROP FOREIGN KEY user_permissions__perm_fk;
+ALTER TABLE user_permissions DROP FOREIGN KEY user_permissions_users_UUID_fk;
+ALTER TABLE user_roles DROP FOREIGN KEY user_roles_roles_role_fk;
+ALTER TABLE user_roles DROP FOREIGN KEY user_roles_users_user_fk;
+ALTER TABLE role_permissions DROP FOREIGN KEY role_permissions_permissions_id_fk;
+ALTER TABLE role_permissions DROP FOREIGN KEY role_permissions_roles_id_fk;
+ALTER TABLE processes DROP FOREIGN KEY processes_process_status_names_UUID_fk;
+ALTER TABLE processes DROP FOREIGN KEY processes_process_types_TypeID_fk;
+ALTER TABLE processes DROP FOREIGN KEY processes_users_UUID_fk;
+ALTER TABLE tickets DROP FOREIGN KEY tickets_ticket_status_names_UUID_fk;
+ALTER TABLE tickets DROP FOREIGN KEY tickets_ticket_types_UUID_fk;
+ALTER TABLE ticket_transcripts DROP FOREIGN KEY ticket_transcripts_tickets_UUID_fk;
+ALTER TABLE players_notes DROP FOREIGN KEY player_note_player_fk;
+ALTER TABLE players_notes DROP FOREIGN KEY player_note_user_fk;
+ALTER TABLE players_mc_accounts DROP FOREIGN KEY players_mc_fk;
+ALTER TABLE process_player_assignment DROP FOREIGN KEY process_player_process_id_fk;
+ALTER TABLE process_player_assignment DROP FOREIGN KEY process_player_player_id_fk;
+ALTER TABLE punishments DROP FOREIGN KEY punishments_types_fk;
+ALTER TABLE punishments DROP FOREIGN KEY punishments_player_fk;
+ALTER TABLE punishments DROP FOREIGN KEY punishments_user_types_fk;
+ALTER TABLE reports DROP FOREIGN KEY reports_types_fk;
+ALTER TABLE reports DROP FOREIGN KEY reports_status_fk;
+ALTER TABLE reports_update_history DROP FOREIGN KEY reports_hist_report_fk;
+ALTER TABLE reports_update_history DROP FOREIGN KEY reports_hist_user_fk;
+ALTER TABLE reports_update_history DROP FOREIGN KEY reports_hist_status_fk;
+ALTER TABLE discord_user_mappings DROP FOREIGN KEY dc_user_fk;
+
+ALTER TABLE users MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE users SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE users MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE permissions MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE permissions SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE permissions MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE user_permissions MODIFY UserID VARBINARY(36) NOT NULL, MODIFY PermissionID VARBINARY(36) NOT NULL;
+UPDATE user_permissions SET UserID = UUID_TO_BIN(UserID) WHERE LENGTH(UserID) = 36;
+UPDATE user_permissions SET PermissionID = UUID_TO_BIN(PermissionID) WHERE LENGTH(PermissionID) = 36;
+ALTER TABLE user_permissions MODIFY UserID BINARY(16) NOT NULL, MODIFY PermissionID BINARY(16) NOT NULL;
+
+ALTER TABLE roles MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE roles SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE roles MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE user_roles MODIFY UserID VARBINARY(36) NOT NULL, MODIFY RoleID VARBINARY(36) NOT NULL;
+UPDATE user_roles SET UserID = UUID_TO_BIN(UserID) WHERE LENGTH(UserID) = 36;
+UPDATE user_roles SET RoleID = UUID_TO_BIN(RoleID) WHERE LENGTH(RoleID) = 36;
+ALTER TABLE user_roles MODIFY UserID BINARY(16) NOT NULL, MODIFY RoleID BINARY(16) NOT NULL;
+
+ALTER TABLE role_permissions MODIFY RoleID VARBINARY(36) NOT NULL, MODIFY PermissionID VARBINARY(36) NOT NULL;
+UPDATE role_permissions SET RoleID = UUID_TO_BIN(RoleID) WHERE LENGTH(RoleID) = 36;
+UPDATE role_permissions SET PermissionID = UUID_TO_BIN(PermissionID) WHERE LENGTH(PermissionID) = 36;
+ALTER TABLE role_permissions MODIFY RoleID BINARY(16) NOT NULL, MODIFY PermissionID BINARY(16) NOT NULL;
+
+ALTER TABLE process_status_names MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE process_status_names SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE process_status_names MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE ticket_status_names MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE ticket_status_names SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE ticket_status_names MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE ticket_types MODIFY TypeID VARBINARY(36) NOT NULL;
+UPDATE ticket_types SET TypeID = UUID_TO_BIN(TypeID) WHERE LENGTH(TypeID) = 36;
+ALTER TABLE ticket_types MODIFY TypeID BINARY(16) NOT NULL;
+
+ALTER TABLE process_types MODIFY TypeID VARBINARY(36) NOT NULL;
+UPDATE process_types SET TypeID = UUID_TO_BIN(TypeID) WHERE LENGTH(TypeID) = 36;
+ALTER TABLE process_types MODIFY TypeID BINARY(16) NOT NULL;
+
+ALTER TABLE processes MODIFY ProcessID VARBINARY(36) NOT NULL, MODIFY CreatedBy VARBINARY(36) NOT NULL, MODIFY Status VARBINARY(36) NOT NULL, MODIFY ProcessType VARBINARY(36) NOT NULL;
+UPDATE processes SET ProcessID = UUID_TO_BIN(ProcessID) WHERE LENGTH(ProcessID) = 36;
+UPDATE processes SET CreatedBy = UUID_TO_BIN(CreatedBy) WHERE LENGTH(CreatedBy) = 36;
+UPDATE processes SET Status = UUID_TO_BIN(Status) WHERE LENGTH(Status) = 36;
+UPDATE processes SET ProcessType = UUID_TO_BIN(ProcessType) WHERE LENGTH(ProcessType) = 36;
+ALTER TABLE processes MODIFY ProcessID BINARY(16) NOT NULL, MODIFY CreatedBy BINARY(16) NOT NULL, MODIFY Status BINARY(16) NOT NULL, MODIFY ProcessType BINARY(16) NOT NULL;
+
+ALTER TABLE tickets MODIFY UUID VARBINARY(36) NOT NULL, MODIFY TicketStatus VARBINARY(36) NOT NULL, MODIFY TicketType VARBINARY(36) NOT NULL;
+UPDATE tickets SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+UPDATE tickets SET TicketStatus = UUID_TO_BIN(TicketStatus) WHERE LENGTH(TicketStatus) = 36;
+UPDATE tickets SET TicketType = UUID_TO_BIN(TicketType) WHERE LENGTH(TicketType) = 36;
+ALTER TABLE tickets MODIFY UUID BINARY(16) NOT NULL, MODIFY TicketStatus BINARY(16) NOT NULL, MODIFY TicketType BINARY(16) NOT NULL;
+
+ALTER TABLE ticket_transcripts MODIFY TicketID VARBINARY(36) NOT NULL;
+UPDATE ticket_transcripts SET TicketID = UUID_TO_BIN(TicketID) WHERE LENGTH(TicketID) = 36;
+ALTER TABLE ticket_transcripts MODIFY TicketID BINARY(16) NOT NULL;
+
+ALTER TABLE server_data MODIFY UUID VARBINARY(36) NOT NULL;
+UPDATE server_data SET UUID = UUID_TO_BIN(UUID) WHERE LENGTH(UUID) = 36;
+ALTER TABLE server_data MODIFY UUID BINARY(16) NOT NULL;
+
+ALTER TABLE punishments MODIFY RecordID VARBINARY(36) NOT NULL, MODIFY PunishmentType VARBINARY(36) NOT NULL, MODIFY CreateUserType VARBINARY(36) NOT NULL, MODIFY CreatedBy VARBINARY(36) NOT NULL, MODIFY PlayerID VARBINARY(36) NOT NULL;
+UPDATE punishments SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+UPDATE punishments SET PunishmentType = UUID_TO_BIN(PunishmentType) WHERE LENGTH(PunishmentType) = 36;
+UPDATE punishments SET CreateUserType = UUID_TO_BIN(CreateUserType) WHERE LENGTH(CreateUserType) = 36;
+UPDATE punishments SET CreatedBy = UUID_TO_BIN(CreatedBy) WHERE LENGTH(CreatedBy) = 36;
+UPDATE punishments SET PlayerID = UUID_TO_BIN(PlayerID) WHERE LENGTH(PlayerID) = 36;
+ALTER TABLE punishments MODIFY RecordID BINARY(16) NOT NULL, MODIFY PunishmentType BINARY(16) NOT NULL, MODIFY CreateUserType BINARY(16) NOT NULL, MODIFY CreatedBy BINARY(16) NOT NULL, MODIFY PlayerID BINARY(16) NOT NULL;
+
+ALTER TABLE punishment_types MODIFY TypeID VARBINARY(36) NOT NULL;
+UPDATE punishment_types SET TypeID = UUID_TO_BIN(TypeID) WHERE LENGTH(TypeID) = 36;
+ALTER TABLE punishment_types MODIFY TypeID BINARY(16) NOT NULL;
+
+ALTER TABLE user_types MODIFY RecordID VARBINARY(36) NOT NULL;
+UPDATE user_types SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+ALTER TABLE user_types MODIFY RecordID BINARY(16) NOT NULL;
+
+ALTER TABLE reports MODIFY RecordID VARBINARY(36) NOT NULL, MODIFY CreatedBy VARBINARY(36) NOT NULL, MODIFY Reported VARBINARY(36) NOT NULL, MODIFY ReportType VARBINARY(36) NOT NULL, MODIFY ReportStatus VARBINARY(36) NOT NULL;
+UPDATE reports SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+UPDATE reports SET CreatedBy = UUID_TO_BIN(CreatedBy) WHERE LENGTH(CreatedBy) = 36;
+UPDATE reports SET Reported = UUID_TO_BIN(Reported) WHERE LENGTH(Reported) = 36;
+UPDATE reports SET ReportType = UUID_TO_BIN(ReportType) WHERE LENGTH(ReportType) = 36;
+UPDATE reports SET ReportStatus = UUID_TO_BIN(ReportStatus) WHERE LENGTH(ReportStatus) = 36;
+ALTER TABLE reports MODIFY RecordID BINARY(16) NOT NULL, MODIFY CreatedBy BINARY(16) NOT NULL, MODIFY Reported BINARY(16) NOT NULL, MODIFY ReportType BINARY(16) NOT NULL, MODIFY ReportStatus BINARY(16) NOT NULL;
+
+ALTER TABLE reports_update_history MODIFY RecordID VARBINARY(36) NOT NULL, MODIFY ReportID VARBINARY(36) NOT NULL, MODIFY UpdaterUserType VARBINARY(36) NOT NULL, MODIFY Updater VARBINARY(36) NOT NULL, MODIFY NewStatus VARBINARY(36) NULL;
+UPDATE reports_update_history SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+UPDATE reports_update_history SET ReportID = UUID_TO_BIN(ReportID) WHERE LENGTH(ReportID) = 36;
+UPDATE reports_update_history SET UpdaterUserType = UUID_TO_BIN(UpdaterUserType) WHERE LENGTH(UpdaterUserType) = 36;
+UPDATE reports_update_history SET Updater = UUID_TO_BIN(Updater) WHERE LENGTH(Updater) = 36;
+UPDATE reports_update_history SET NewStatus = UUID_TO_BIN(NewStatus) WHERE LENGTH(NewStatus) = 36;
+ALTER TABLE reports_update_history MODIFY RecordID BINARY(16) NOT NULL, MODIFY ReportID BINARY(16) NOT NULL, MODIFY UpdaterUserType BINARY(16) NOT NULL, MODIFY Updater BINARY(16) NOT NULL, MODIFY NewStatus BINARY(16) NULL;
+
+ALTER TABLE reports_types MODIFY RecordID VARBINARY(36) NOT NULL;
+UPDATE reports_types SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+ALTER TABLE reports_types MODIFY RecordID BINARY(16) NOT NULL;
+
+ALTER TABLE reports_status MODIFY RecordID VARBINARY(36) NOT NULL;
+UPDATE reports_status SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+ALTER TABLE reports_status MODIFY RecordID BINARY(16) NOT NULL;
+
+ALTER TABLE players MODIFY PlayerID VARBINARY(36) NOT NULL;
+UPDATE players SET PlayerID = UUID_TO_BIN(PlayerID) WHERE LENGTH(PlayerID) = 36;
+ALTER TABLE players MODIFY PlayerID BINARY(16) NOT NULL;
+
+ALTER TABLE process_player_assignment MODIFY ProcessID VARBINARY(36) NOT NULL, MODIFY PlayerID VARBINARY(36) NOT NULL;
+UPDATE process_player_assignment SET ProcessID = UUID_TO_BIN(ProcessID) WHERE LENGTH(ProcessID) = 36;
+UPDATE process_player_assignment SET PlayerID = UUID_TO_BIN(PlayerID) WHERE LENGTH(PlayerID) = 36;
+ALTER TABLE process_player_assignment MODIFY ProcessID BINARY(16) NOT NULL, MODIFY PlayerID BINARY(16) NOT NULL;
+
+ALTER TABLE players_notes MODIFY RecordID VARBINARY(36) NOT NULL, MODIFY PlayerID VARBINARY(36) NOT NULL, MODIFY UserID VARBINARY(36) NOT NULL;
+UPDATE players_notes SET RecordID = UUID_TO_BIN(RecordID) WHERE LENGTH(RecordID) = 36;
+UPDATE players_notes SET PlayerID = UUID_TO_BIN(PlayerID) WHERE LENGTH(PlayerID) = 36;
+UPDATE players_notes SET UserID = UUID_TO_BIN(UserID) WHERE LENGTH(UserID) = 36;
+ALTER TABLE players_notes MODIFY RecordID BINARY(16) NOT NULL, MODIFY PlayerID BINARY(16) NOT NULL, MODIFY UserID BINARY(16) NOT NULL;
+
+ALTER TABLE players_mc_accounts MODIFY PlayerID VARBINARY(36) NOT NULL, MODIFY MC_UUID VARBINARY(36) NOT NULL;
+UPDATE players_mc_accounts SET PlayerID = UUID_TO_BIN(PlayerID) WHERE LENGTH(PlayerID) = 36;
+UPDATE players_mc_accounts SET MC_UUID = UUID_TO_BIN(MC_UUID) WHERE LENGTH(MC_UUID) = 36;
+ALTER TABLE players_mc_accounts MODIFY PlayerID BINARY(16) NOT NULL, MODIFY MC_UUID BINARY(16) NOT NULL;
+
+ALTER TABLE discord_user_mappings MODIFY UserID VARBINARY(36) NOT NULL;
+UPDATE discord_user_mappings SET UserID = UUID_TO_BIN(UserID) WHERE LENGTH(UserID) = 36;
+ALTER TABLE discord_user_mappings MODIFY UserID BINARY(16) NOT NULL;
+
+ALTER TABLE user_permissions
+    ADD CONSTRAINT user_permissions__perm_fk
+        FOREIGN KEY (PermissionID) REFERENCES permissions (UUID);
+ALTER TABLE user_permissions
+    ADD CONSTRAINT user_permissions_users_UUID_fk
+        FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE user_roles
+    ADD CONSTRAINT user_roles_roles_role_fk
+        FOREIGN KEY (RoleID) REFERENCES roles (UUID);
+ALTER TABLE user_roles
+    ADD CONSTRAINT user_roles_users_user_fk
+        FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE role_permissions
+    ADD CONSTRAINT role_permissions_permissions_id_fk
+        FOREIGN KEY (PermissionID) REFERENCES permissions (UUID);
+ALTER TABLE role_permissions
+    ADD CONSTRAINT role_permissions_roles_id_fk
+        FOREIGN KEY (RoleID) REFERENCES roles (UUID);
+ALTER TABLE processes
+    ADD CONSTRAINT processes_process_status_names_UUID_fk
+        FOREIGN KEY (Status) REFERENCES process_status_names (UUID);
+ALTER TABLE processes
+    ADD CONSTRAINT processes_process_types_TypeID_fk
+        FOREIGN KEY (ProcessType) REFERENCES process_types (TypeID);
+ALTER TABLE processes
+    ADD CONSTRAINT processes_users_UUID_fk
+        FOREIGN KEY (CreatedBy) REFERENCES users (UUID);
+ALTER TABLE tickets
+    ADD CONSTRAINT tickets_ticket_status_names_UUID_fk
+        FOREIGN KEY (TicketStatus) REFERENCES ticket_status_names (UUID);
+ALTER TABLE tickets
+    ADD CONSTRAINT tickets_ticket_types_UUID_fk
+        FOREIGN KEY (TicketType) REFERENCES ticket_types (TypeID);
+ALTER TABLE ticket_transcripts
+    ADD CONSTRAINT ticket_transcripts_tickets_UUID_fk
+        FOREIGN KEY (TicketID) REFERENCES tickets (UUID);
+ALTER TABLE players_notes
+    ADD CONSTRAINT player_note_player_fk
+        FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE players_notes
+    ADD CONSTRAINT player_note_user_fk
+        FOREIGN KEY (UserID) REFERENCES users (UUID);
+ALTER TABLE players_mc_accounts
+    ADD CONSTRAINT players_mc_fk
+        FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE process_player_assignment
+    ADD CONSTRAINT process_player_process_id_fk
+        FOREIGN KEY (ProcessID) REFERENCES processes (ProcessID);
+ALTER TABLE process_player_assignment
+    ADD CONSTRAINT process_player_player_id_fk
+        FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE punishments
+    ADD CONSTRAINT punishments_types_fk
+        FOREIGN KEY (PunishmentType) REFERENCES punishment_types (TypeID);
+ALTER TABLE punishments
+    ADD CONSTRAINT punishments_player_fk
+        FOREIGN KEY (PlayerID) REFERENCES players (PlayerID);
+ALTER TABLE punishments
+    ADD CONSTRAINT punishments_user_types_fk
+        FOREIGN KEY (CreateUserType) REFERENCES user_types (RecordID);
+ALTER TABLE reports
+    ADD CONSTRAINT reports_types_fk
+        FOREIGN KEY (ReportType) REFERENCES reports_types (RecordID);
+ALTER TABLE reports
+    ADD CONSTRAINT reports_status_fk
+        FOREIGN KEY (ReportStatus) REFERENCES reports_status (RecordID);
+ALTER TABLE reports_update_history
+    ADD CONSTRAINT reports_hist_report_fk
+        FOREIGN KEY (ReportID) REFERENCES reports (RecordID);
+ALTER TABLE reports_update_history
+    ADD CONSTRAINT reports_hist_user_fk
+        FOREIGN KEY (UpdaterUserType) REFERENCES user_types (RecordID);
+ALTER TABLE reports_update_history
+    ADD CONSTRAINT reports_hist_status_fk
+        FOREIGN KEY (NewStatus) REFERENCES reports_status (RecordID);
+ALTER TABLE discord_user_mappings
+    ADD CONSTRAINT dc_user_fk
+        FOREIGN KEY (UserID) REFERENCES users (UUID);
@@ -0,0 +1,107 @@
+package de.julianweinelt.caesar.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionBitsTest {
+
+    @Test
+    void assignsStableIDs() {
+        String permission = permission();
+        int id = PermissionBits.intern(permission);
+        assertTrue(id >= 0);
+        assertEquals(id, PermissionBits.intern(permission));
+        assertEquals(id, PermissionBits.lookup(permission));
+        assertNotEquals(id, PermissionBits.intern(permission()));
+    }
+
+    @Test
+    void doesNotAssignIDsOnLookup() {
+        String permission = permission();
+        assertEquals(-1, PermissionBits.lookup(permission));
+        assertEquals(-1, PermissionBits.lookup(permission));
+    }
+
+    @Test
+    void createsBitsets() {
+        String first = permission();
+        String second = permission();
+        BitSet bits = PermissionBits.of(Arrays.asList(first, null, second));
+
+        assertEquals(2, bits.cardinality());
+        assertTrue(bits.get(PermissionBits.lookup(first)));
+        assertTrue(bits.get(PermissionBits.lookup(second)));
+    }
+
+    @Test
+    void grantsPermissionsOfUserAndRoles() {
+        String own = permission();
+        String fromRole = permission();
+        User user = new User(UUID.randomUUID());
+        user.addPermission(own);
+        user.addRole(new UserRole("Moderator", "#ffffff", UUID.randomUUID(), fromRole));
+
+        assertTrue(user.hasPermission(own));
+        assertTrue(user.hasPermission(fromRole));
+        assertFalse(user.hasPermission(permission()));
+    }
+
+    @Test
+    void updatesUsersWhenRoleChanges() {
+        String permission = permission();
+        UserRole role = new UserRole("Moderator", "#ffffff", UUID.randomUUID());
+        User user = new User(UUID.randomUUID());
+        user.addRole(role);
+        assertFalse(user.hasPermission(permission));
+
+        role.addPermission(permission);
+        assertTrue(user.hasPermission(permission));
+
+        role.removePermission(permission);
+        assertFalse(user.hasPermission(permission));
+    }
+
+    @Test
+    void revokesPermissionsOnRemoval() {
+        String own = permission();
+        String fromRole = permission();
+        UserRole role = new UserRole("Moderator", "#ffffff", UUID.randomUUID(), fromRole, own);
+        User user = new User(UUID.randomUUID());
+        user.addPermission(own);
+        user.addRole(role);
+
+        user.removePermission(own);
+        // Still granted by the role
+        assertTrue(user.hasPermission(own));
+
+        user.removeRole(role);
+        assertFalse(user.hasPermission(own));
+        assertFalse(user.hasPermission(fromRole));
+    }
+
+    @Test
+    void replacesPermissions() {
+        String old = permission();
+        String replacement = permission();
+        User user = new User(UUID.randomUUID());
+        user.addPermission(old);
+        assertTrue(user.hasPermission(old));
+
+        user.replacePermissions(List.of(replacement));
+        assertFalse(user.hasPermission(old));
+        assertTrue(user.hasPermission(replacement));
+    }
+
+    /**
+     * IDs are shared by all tests, so every test uses keys nobody else has seen.
+     */
+    private static String permission() {
+        return "caesar.test." + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,108 @@
+package de.julianweinelt.caesar.auth;
+
+import de.julianweinelt.caesar.exceptions.StorageException;
+import de.julianweinelt.caesar.storage.Configuration;
+import de.julianweinelt.caesar.storage.providers.MySQLStorageProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserManagerTest {
+    private final Map<String, User> users = new HashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicBoolean unreachable = new AtomicBoolean();
+    private UserManager userManager;
+
+    @BeforeEach
+    void createUserManager() {
+        // Never connected, only the user lookups are answered
+        MySQLStorageProvider storage = new MySQLStorageProvider("localhost", 3306, "caesar", "caesar", "") {
+            @Override
+            public Optional<User> getUser(String username) {
+                queries.incrementAndGet();
+                if (unreachable.get()) throw new StorageException("Database is not reachable");
+                return Optional.ofNullable(users.get(username));
+            }
+
+            @Override
+            public Optional<User> getUser(UUID uuid) {
+                queries.incrementAndGet();
+                if (unreachable.get()) throw new StorageException("Database is not reachable");
+                return users.values().stream().filter(u -> u.getUuid().equals(uuid)).findFirst();
+            }
+        };
+        userManager = new UserManager(new Configuration(), () -> storage);
+    }
+
+    @Test
+    void loadsUsersOnlyOnce() {
+        User user = addUser("Julian");
+
+        assertSame(user, userManager.getUser("Julian"));
+        assertSame(user, userManager.getUser("Julian"));
+        assertSame(user, userManager.getUser(user.getUuid()));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void remembersUnknownUsernames() {
+        assertNull(userManager.getUser("Unknown"));
+        assertNull(userManager.getUser("Unknown"));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void doesNotRememberUsernamesOnFailure() {
+        User user = addUser("Julian");
+        unreachable.set(true);
+        assertNull(userManager.getUser("Julian"));
+
+        unreachable.set(false);
+        assertSame(user, userManager.getUser("Julian"));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void remembersUnknownUserIDs() {
+        UUID uuid = UUID.randomUUID();
+        assertNull(userManager.getUser(uuid));
+        assertNull(userManager.getUser(uuid));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void doesNotRememberUserIDsOnFailure() {
+        User user = addUser("Julian");
+        unreachable.set(true);
+        assertNull(userManager.getUser(user.getUuid()));
+
+        unreachable.set(false);
+        assertSame(user, userManager.getUser(user.getUuid()));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void forgetsUnknownUsernameOnRename() {
+        User user = addUser("Julian");
+        assertNull(userManager.getUser("Caesar"));
+        assertSame(user, userManager.getUser("Julian"));
+
+        userManager.renameUser(user, "Caesar");
+        assertSame(user, userManager.getUser("Caesar"));
+        assertEquals(2, queries.get());
+    }
+
+    private User addUser(String username) {
+        User user = new User(UUID.randomUUID(), username, "password".hashCode(), "0");
+        users.put(username, user);
+        return user;
+    }
+}
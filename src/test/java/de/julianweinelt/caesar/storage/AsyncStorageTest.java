@@ -0,0 +1,33 @@
+package de.julianweinelt.caesar.storage;
+
+import de.julianweinelt.caesar.storage.providers.H2StorageProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncStorageTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    void failsOperationsAfterShutdown() {
+        // Never connected, the operations are rejected before reaching the database
+        AsyncStorage async = new AsyncStorage(new H2StorageProvider(folder.toFile(), "caesar", "sa", ""), 1);
+        async.shutdown();
+
+        CompletableFuture<Integer> operation = async.supply(s -> 1);
+        CompletionException e = assertThrows(CompletionException.class, operation::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+        CompletionException profile = assertThrows(CompletionException.class,
+                async.getPlayerProfile(UUID.randomUUID())::join);
+        assertInstanceOf(RejectedExecutionException.class, profile.getCause());
+    }
+}
@@ -0,0 +1,67 @@
+package de.julianweinelt.caesar.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionCircuitBreakerTest {
+    private ConnectionCircuitBreaker breaker;
+
+    @BeforeEach
+    void createBreaker() {
+        ConnectionPoolSettings settings = new ConnectionPoolSettings();
+        settings.setFailureThreshold(2);
+        settings.setReconnectBackoff(200);
+        settings.setMaxReconnectBackoff(300);
+        breaker = new ConnectionCircuitBreaker(settings);
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        breaker.recordFailure();
+        assertFalse(breaker.isOpen());
+        assertEquals(0, breaker.getRemainingBackoff());
+    }
+
+    @Test
+    void opensAtThreshold() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+        long remaining = breaker.getRemainingBackoff();
+        assertTrue(remaining > 0 && remaining <= 200, "remaining backoff: " + remaining);
+    }
+
+    @Test
+    void letsRequestsThroughAfterBackoff() throws InterruptedException {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        Thread.sleep(250);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void doublesBackoffUpToMaximum() throws InterruptedException {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        Thread.sleep(250);
+
+        // The attempt after the backoff failed again
+        breaker.recordFailure();
+        long remaining = breaker.getRemainingBackoff();
+        assertTrue(remaining > 200 && remaining <= 300, "remaining backoff: " + remaining);
+    }
+
+    @Test
+    void closesOnSuccess() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        assertFalse(breaker.isOpen());
+
+        // Failures are counted from zero again
+        breaker.recordFailure();
+        assertFalse(breaker.isOpen());
+    }
+}
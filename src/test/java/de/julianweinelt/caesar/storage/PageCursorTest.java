@@ -0,0 +1,73 @@
+package de.julianweinelt.caesar.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void decodesEncodedCursor() {
+        PageCursor cursor = new PageCursor(1718000000L, UUID.fromString("5f0c2a8e-7a1b-4c7e-9d0a-2b9f3f6d1e42"));
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodesURLSafe() {
+        String encoded = new PageCursor(Long.MAX_VALUE, UUID.randomUUID()).encode();
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void returnsNullWithoutCursor() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("  "));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("no-separator")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode(":missing-date")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("yesterday:" + UUID.randomUUID())));
+    }
+
+    @Test
+    void rejectsIDsThatAreNoUUIDs() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("42:id")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("42:")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("42:" + UUID.randomUUID() + "' OR 1=1")));
+    }
+
+    @Test
+    void clampsLimit() {
+        assertEquals(1, PageCursor.clampLimit(0));
+        assertEquals(1, PageCursor.clampLimit(-5));
+        assertEquals(25, PageCursor.clampLimit(25));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.clampLimit(PageCursor.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void createsPages() {
+        JsonArray items = new JsonArray();
+        items.add("item");
+        PageCursor next = new PageCursor(1, UUID.randomUUID());
+
+        JsonObject page = PageCursor.page(items, next);
+        assertEquals(items, page.getAsJsonArray("items"));
+        assertEquals(next, PageCursor.decode(page.get("next").getAsString()));
+
+        assertTrue(PageCursor.page(items, null).get("next").isJsonNull());
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,82 @@
+package de.julianweinelt.caesar.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceAllocatorTest {
+
+    @Test
+    void handsOutNumbersOfReservedBlocks() {
+        AtomicInteger reservations = new AtomicInteger();
+        AtomicLong next = new AtomicLong(100);
+        SequenceAllocator allocator = new SequenceAllocator(amount -> {
+            reservations.incrementAndGet();
+            return next.getAndAdd(amount);
+        }, 3);
+
+        for (long expected = 100; expected < 107; expected++) assertEquals(expected, allocator.next());
+        assertEquals(3, reservations.get());
+    }
+
+    @Test
+    void skipsNumbersOfBlocksReservedElsewhere() {
+        // Another node reserved 103..105 in between
+        long[] starts = {100, 106};
+        AtomicInteger call = new AtomicInteger();
+        SequenceAllocator allocator = new SequenceAllocator(amount -> starts[call.getAndIncrement()], 3);
+
+        assertEquals(List.of(100L, 101L, 102L, 106L), List.of(allocator.next(), allocator.next(),
+                allocator.next(), allocator.next()));
+    }
+
+    @Test
+    void returnsMinusOneIfNoBlockCouldBeReserved() {
+        AtomicInteger reservations = new AtomicInteger();
+        SequenceAllocator allocator = new SequenceAllocator(amount -> reservations.getAndIncrement() == 0 ? -1 : 1, 2);
+
+        assertEquals(-1, allocator.next());
+        // The failed reservation is tried again on the next call
+        assertEquals(1, allocator.next());
+    }
+
+    @Test
+    void reservesNewBlockAfterReset() {
+        AtomicLong next = new AtomicLong(100);
+        SequenceAllocator allocator = new SequenceAllocator(amount -> next.getAndAdd(amount), 5);
+        assertEquals(100, allocator.next());
+
+        // Like an import writing numbers beyond the current block
+        next.set(500);
+        allocator.reset();
+        assertEquals(500, allocator.next());
+    }
+
+    @Test
+    void neverHandsOutANumberTwice() throws InterruptedException {
+        AtomicLong next = new AtomicLong(1);
+        SequenceAllocator allocator = new SequenceAllocator(amount -> next.getAndAdd(amount), 7);
+        Set<Long> numbers = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) if (!numbers.add(allocator.next())) duplicates.incrementAndGet();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(0, duplicates.get());
+        assertEquals(8000, numbers.size());
+    }
+}
@@ -0,0 +1,140 @@
+package de.julianweinelt.caesar.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+    private static final String INSERT = "INSERT INTO transcripts (ID, Message) VALUES (?, ?)";
+
+    private String url;
+    private Connection keepAlive;
+    private final AtomicInteger outages = new AtomicInteger();
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        url = "jdbc:h2:mem:" + UUID.randomUUID();
+        // Keeps the in-memory database alive between the connections of the queue
+        keepAlive = DriverManager.getConnection(url);
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("CREATE TABLE transcripts (ID INT PRIMARY KEY, Message VARCHAR(50) NOT NULL)");
+        }
+
+        WriteBehindSettings settings = new WriteBehindSettings();
+        settings.setFlushInterval(50);
+        settings.setBatchSize(1000);
+        settings.setMaxRetries(2);
+        settings.setRetryBackoff(1);
+        settings.setMaxRetryBackoff(1);
+        queue = new WriteBehindQueue(this::connect, settings);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        outages.set(0);
+        queue.close();
+        keepAlive.close();
+    }
+
+    private Connection connect() throws SQLException {
+        if (outages.getAndUpdate(i -> Math.max(0, i - 1)) > 0)
+            throw new SQLTransientConnectionException("Database is not reachable");
+        return DriverManager.getConnection(url);
+    }
+
+    @Test
+    void writesBatch() throws SQLException {
+        assertTrue(queue.write(writes(1, 2, 3)).isEmpty());
+        assertEquals(List.of(1, 2, 3), storedIDs());
+    }
+
+    @Test
+    void writesQueuedWritesBeforeClosing() throws SQLException {
+        for (int id = 1; id <= 5; id++) queue.enqueue(INSERT, id, "Message " + id);
+        queue.close();
+
+        assertEquals(0, queue.size());
+        assertEquals(List.of(1, 2, 3, 4, 5), storedIDs());
+    }
+
+    @Test
+    void retriesBatchAfterTransientFailure() throws SQLException {
+        outages.set(2);
+        assertTrue(queue.write(writes(1, 2)).isEmpty());
+        assertEquals(List.of(1, 2), storedIDs());
+    }
+
+    @Test
+    void dropsOnlyRowsRejectedByTheDatabase() throws SQLException {
+        List<WriteBehindQueue.PendingWrite> batch = writes(1, 2);
+        // Violates the primary key, so the whole batch is rolled back
+        batch.add(new WriteBehindQueue.PendingWrite(INSERT, new Object[]{1, "Duplicate"}));
+        batch.addAll(writes(3));
+
+        assertTrue(queue.write(batch).isEmpty());
+        assertEquals(List.of(1, 2, 3), storedIDs());
+    }
+
+    @Test
+    void keepsWritesWhileDatabaseIsNotReachable() throws SQLException {
+        outages.set(Integer.MAX_VALUE);
+        List<WriteBehindQueue.PendingWrite> failed = queue.write(writes(1, 2));
+        assertEquals(2, failed.size());
+
+        outages.set(0);
+        assertTrue(queue.write(failed).isEmpty());
+        assertEquals(List.of(1, 2), storedIDs());
+    }
+
+    @Test
+    void putsFailedWritesBackIntoTheQueue() throws SQLException {
+        outages.set(Integer.MAX_VALUE);
+        queue.enqueue(INSERT, 1, "Message 1");
+        queue.close();
+        assertEquals(1, queue.size());
+
+        outages.set(0);
+        queue.flush();
+        assertEquals(0, queue.size());
+        assertEquals(List.of(1), storedIDs());
+    }
+
+    @Test
+    void classifiesErrors() {
+        assertTrue(WriteBehindQueue.isTransient(new SQLTransientConnectionException("Connection lost")));
+        assertTrue(WriteBehindQueue.isTransient(new SQLException("Lock wait timeout", "40001")));
+        assertFalse(WriteBehindQueue.isTransient(new SQLIntegrityConstraintViolationException("Duplicate entry")));
+        assertFalse(WriteBehindQueue.isTransient(new SQLException("Data too long", "22001")));
+        assertFalse(WriteBehindQueue.isTransient(new SQLException("Syntax error", "42000")));
+    }
+
+    private static List<WriteBehindQueue.PendingWrite> writes(int... ids) {
+        List<WriteBehindQueue.PendingWrite> writes = new ArrayList<>();
+        for (int id : ids) writes.add(new WriteBehindQueue.PendingWrite(INSERT, new Object[]{id, "Message " + id}));
+        return writes;
+    }
+
+    private List<Integer> storedIDs() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = keepAlive.createStatement();
+             ResultSet set = stmt.executeQuery("SELECT ID FROM transcripts ORDER BY ID")) {
+            while (set.next()) ids.add(set.getInt(1));
+        }
+        return ids;
+    }
+}
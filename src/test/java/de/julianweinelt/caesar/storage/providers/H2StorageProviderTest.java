@@ -0,0 +1,203 @@
+package de.julianweinelt.caesar.storage.providers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import de.julianweinelt.caesar.exceptions.StorageException;
+import de.julianweinelt.caesar.storage.StorageHelperInitializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the queries shared with {@link MySQLStorageProvider} against the embedded database in MySQL mode.
+ */
+class H2StorageProviderTest {
+    @TempDir
+    static Path folder;
+
+    private static H2StorageProvider storage;
+
+    @BeforeAll
+    static void connect() {
+        storage = new H2StorageProvider(folder.toFile(), "caesar", "sa", "");
+        // Only opens the pool and creates the schema, loading data needs a running Caesar instance
+        assertTrue(storage.openConnection());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        storage.disconnect();
+    }
+
+    @Test
+    void createsPlayersWithConsecutiveNumbers() {
+        UUID first = storage.createPlayer();
+        UUID second = storage.createPlayer();
+        assertNotNull(first);
+        assertNotNull(second);
+
+        int number = storage.getPlayerNumber(first);
+        assertTrue(number >= 10000);
+        assertEquals(number + 1, storage.getPlayerNumber(second));
+        assertEquals(first, storage.getPlayer(number));
+    }
+
+    @Test
+    void createsReadsAndDeletesNotes() throws SQLException {
+        UUID player = storage.createPlayer();
+        UUID user = createUser("note-author");
+
+        storage.createPlayerNote(player, user, "First note");
+        JsonArray notes = storage.getPlayerNotes(player);
+        assertEquals(1, notes.size());
+        JsonObject note = notes.get(0).getAsJsonObject();
+        assertEquals("First note", note.get("Note").getAsString());
+        assertEquals(user.toString(), note.get("UserID").getAsString());
+
+        JsonObject page = storage.getPlayerNotes(player, null, 10);
+        assertEquals(1, page.getAsJsonArray("items").size());
+
+        storage.deletePlayerNote(player, user, UUID.fromString(note.get("RecordID").getAsString()));
+        assertEquals(0, storage.getPlayerNotes(player).size());
+    }
+
+    @Test
+    void loadsPlayerProfile() throws SQLException {
+        UUID player = storage.createPlayer();
+        UUID user = createUser("profile-author");
+        storage.createPlayerNote(player, user, "Note in a profile");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JsonObject profile = storage.getPlayerProfile(player, executor).join();
+            assertEquals(player.toString(), profile.get("UUID").getAsString());
+            assertEquals(storage.getPlayerNumber(player), profile.get("playerNumber").getAsInt());
+            assertEquals(1, profile.getAsJsonArray("notes").size());
+            assertEquals(0, profile.getAsJsonArray("processes").size());
+
+            assertNull(storage.getPlayerProfile(UUID.randomUUID(), executor).join());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void recordsSynchronousOperations() {
+        UUID player = storage.createPlayer();
+        storage.getPlayerNotes(player);
+
+        JsonObject operations = storage.getMetrics().toJson().getAsJsonObject("operations");
+        assertTrue(operations.getAsJsonObject("createPlayer").get("calls").getAsLong() > 0);
+        assertTrue(operations.getAsJsonObject("getPlayerNotes").get("calls").getAsLong() > 0);
+    }
+
+    @Test
+    void continuesPlayerNumbersAfterImport() throws IOException {
+        // Reserves a block of numbers before the import
+        int number = storage.getPlayerNumber(storage.createPlayer());
+        int imported = number + 1000;
+        storage.importPlayers(new StringReader("{\"type\":\"player\",\"id\":\"" + UUID.randomUUID() +
+                "\",\"number\":" + imported + "}\n"));
+
+        assertEquals(imported + 1, storage.getPlayerNumber(storage.createPlayer()));
+    }
+
+    @Test
+    void failsPagesIfDatabaseIsNotReachable() {
+        H2StorageProvider closed = new H2StorageProvider(folder.toFile(), "closed", "sa", "");
+        // Never reconnects, like after a shutdown
+        closed.disconnect();
+        UUID player = UUID.randomUUID();
+
+        assertThrows(StorageException.class, () -> closed.getPlayerNotes(player, null, 10));
+        assertThrows(StorageException.class, () -> closed.getPunishmentsForPlayer(player, null, 10));
+        assertThrows(StorageException.class, () -> closed.getProcessesForPlayer(player, null, 10));
+    }
+
+    @Test
+    void assignsPlayersToProcesses() throws SQLException {
+        UUID player = storage.createPlayer();
+        UUID user = createUser("process-author");
+        storage.createProcessType("Appeal", false, null);
+        storage.createProcessStatus("Open", "0;0;0;100", "Process is open");
+        UUID type = findID(storage.getProcessTypes(), "Appeal");
+        UUID status = findID(storage.getProcessStatuses(), "Open");
+
+        UUID process = storage.createProcess(type, status, user, "Appeal of a ban");
+        storage.assignPlayerToProcess(process, player);
+
+        JsonArray processes = storage.getProcessesForPlayer(player);
+        assertEquals(1, processes.size());
+        JsonObject o = processes.get(0).getAsJsonObject();
+        assertEquals(process.toString(), o.get("processID").getAsString());
+        assertEquals("Appeal of a ban", o.get("comment").getAsString());
+        assertTrue(o.get("creationDate").getAsLong() > 0);
+    }
+
+    @Test
+    void deletesPlayerWithAllReferences() throws SQLException {
+        UUID player = storage.createPlayer();
+        UUID user = createUser("delete-author");
+        storage.createPlayerNote(player, user, "Note of a deleted player");
+        int number = storage.getPlayerNumber(player);
+
+        storage.deletePlayer(player);
+        assertEquals(-1, storage.getPlayerNumber(player));
+        assertNull(storage.getPlayer(number));
+        assertEquals(0, storage.getPlayerNotes(player).size());
+    }
+
+    @Test
+    void insertsDefaultDataOnlyOnce() throws SQLException {
+        storage.insertDefaultData();
+        assertTrue(storage.systemDataExist());
+        int roles = count("roles");
+
+        storage.insertDefaultData();
+        assertEquals(roles, count("roles"));
+        assertEquals(StorageHelperInitializer.PERMISSIONS.length, count("permissions"));
+    }
+
+    private static UUID createUser(String username) throws SQLException {
+        UUID user = UUID.randomUUID();
+        try (Connection conn = storage.getConnection();
+             PreparedStatement pS = conn.prepareStatement("INSERT INTO users (UUID, Username, PasswordHashed) VALUES (?, ?, ?)")) {
+            pS.setString(1, user.toString());
+            pS.setString(2, username);
+            pS.setInt(3, "password".hashCode());
+            pS.execute();
+        }
+        return user;
+    }
+
+    private static int count(String table) throws SQLException {
+        try (Connection conn = storage.getConnection();
+             PreparedStatement pS = conn.prepareStatement("SELECT COUNT(*) FROM " + table)) {
+            ResultSet set = pS.executeQuery();
+            assertTrue(set.next());
+            return set.getInt(1);
+        }
+    }
+
+    private static UUID findID(JsonArray array, String name) {
+        for (int i = 0; i < array.size(); i++) {
+            JsonObject o = array.get(i).getAsJsonObject();
+            if (name.equals(o.get("name").getAsString())) return UUID.fromString(o.get("id").getAsString());
+        }
+        return fail("No entry named " + name);
+    }
+}
@@ -0,0 +1,111 @@
+package de.julianweinelt.caesar.storage.providers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the provider on a database created by the version scripts of an older release, like an existing install
+ * that is upgraded. Needs Docker and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MySQLStorageProviderTest {
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.4");
+
+    private MySQLStorageProvider storage;
+
+    @BeforeEach
+    void createLegacySchema() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS sequences, players, processes, punishments, players_notes, " +
+                    "process_player_assignment");
+            // The columns of the version scripts up to v0.3.0 the upgrade depends on
+            stmt.execute("CREATE TABLE players (PlayerID VARCHAR(36) NOT NULL PRIMARY KEY, PlayerNumber INT NOT NULL)");
+            stmt.execute("CREATE TABLE processes (ProcessID VARCHAR(36) NOT NULL PRIMARY KEY, CreationDate long NOT NULL)");
+            stmt.execute("CREATE TABLE punishments (RecordID VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "PlayerID VARCHAR(36) NOT NULL, CreationDate long NOT NULL)");
+            stmt.execute("CREATE TABLE players_notes (RecordID VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "PlayerID VARCHAR(36) NOT NULL, CreationDate long NOT NULL)");
+            stmt.execute("CREATE TABLE process_player_assignment (ProcessID VARCHAR(36) NOT NULL, " +
+                    "PlayerID VARCHAR(36) NOT NULL)");
+            stmt.execute("INSERT INTO players (PlayerID, PlayerNumber) VALUES ('" + UUID.randomUUID() + "', 10041)");
+            stmt.execute("INSERT INTO players_notes (RecordID, PlayerID, CreationDate) VALUES ('" + UUID.randomUUID() +
+                    "', '" + UUID.randomUUID() + "', '1718000000')");
+        }
+        storage = new MySQLStorageProvider(MYSQL.getHost(), MYSQL.getMappedPort(MySQLContainer.MYSQL_PORT),
+                MYSQL.getDatabaseName(), MYSQL.getUsername(), MYSQL.getPassword());
+    }
+
+    @AfterEach
+    void disconnect() {
+        storage.disconnect();
+    }
+
+    @Test
+    void createsSequencesTableOnStartup() {
+        assertTrue(storage.openConnection());
+
+        UUID player = storage.createPlayer();
+        assertNotNull(player);
+        // Continues after the highest number handed out before the upgrade
+        assertEquals(10042, storage.getPlayerNumber(player));
+    }
+
+    @Test
+    void indexesCreationDatesOnStartup() throws SQLException {
+        assertTrue(storage.openConnection());
+
+        try (Connection conn = DriverManager.getConnection(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())) {
+            for (String table : new String[]{"processes", "punishments", "players_notes"})
+                assertEquals("BIGINT", columnType(conn, table, "CreationDate"), table);
+            assertTrue(hasIndex(conn, "processes", "processes_creation_idx"));
+            assertTrue(hasIndex(conn, "punishments", "punishments_player_creation_idx"));
+            assertTrue(hasIndex(conn, "players_notes", "players_notes_player_creation_idx"));
+            assertTrue(hasIndex(conn, "process_player_assignment", "process_player_idx"));
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet set = stmt.executeQuery("SELECT CreationDate FROM players_notes")) {
+                assertTrue(set.next());
+                assertEquals(1718000000L, set.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    void upgradesSchemaRepeatedly() throws SQLException {
+        assertTrue(storage.openConnection());
+        storage.upgradeSchema();
+        storage.disconnect();
+
+        assertTrue(storage.openConnection());
+        assertNotNull(storage.createPlayer());
+    }
+
+    private static String columnType(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet set = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            assertTrue(set.next(), table + "." + column);
+            return set.getString("TYPE_NAME");
+        }
+    }
+
+    private static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        try (ResultSet set = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (set.next()) if (index.equalsIgnoreCase(set.getString("INDEX_NAME"))) return true;
+        }
+        return false;
+    }
+}